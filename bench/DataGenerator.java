@@ -0,0 +1,238 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a synthetic set of the four input files, at any scale, for benchmarking. The output depends only on the
+ * arguments, so two runs with the same arguments write identical files.
+ *
+ * Real data is skewed: a few devices are tested by most testers, and a few testers find most of the bugs. With a
+ * skew above 0, both devices (when mapping testers to devices) and testers (when assigning bugs) are drawn from a
+ * Zipf distribution with that exponent; with a skew of 0 they are drawn uniformly. A small fraction of bugs is
+ * identified on a device the tester is not mapped to, as happens in the real files.
+ *
+ * Usage: java DataGenerator -o dir [-b bugs] [-t testers] [-d devices] [-k devices per tester] [-z skew] [-r seed]
+ */
+public class DataGenerator {
+    private static final String[] COUNTRIES = {"US", "GB", "JP", "DE", "FR", "IN", "BR", "CA", "AU", "NL", "ES", "IT",
+            "SE", "PL", "MX", "KR", "CN", "RU", "ZA", "AR"};
+    private static final String[] MODELS = {"iPhone", "Galaxy S", "Nexus", "Droid", "HTC One", "Pixel", "Xperia Z",
+            "Moto G", "Lumia", "iPad"};
+    private static final String[] FIRST_NAMES = {"Miguel", "Michael", "Leonard", "Taybin", "Mingquan", "Sean",
+            "Stanley", "Lucas", "Darshini", "Chris"};
+    private static final String[] LAST_NAMES = {"Bautista", "Lubavin", "Sutton", "Rutkin", "Zheng", "Wellington",
+            "Chen", "Lane", "Thiagamoorthy", "Smith"};
+    //Fraction of bugs identified on a device the tester is not mapped to
+    private static final double UNMAPPED_BUG_FRACTION = 0.02;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final File directory;
+    private final long bugs;
+    private final int testers;
+    private final int devices;
+    private final int devicesPerTester;
+    private final double skew;
+    private final long seed;
+
+    /**
+     * Constructor for this class
+     * @param directory Directory to write the files to
+     * @param bugs Number of rows of bugs.csv
+     * @param testers Number of rows of testers.csv
+     * @param devices Number of rows of devices.csv
+     * @param devicesPerTester Average number of devices each tester is mapped to
+     * @param skew Exponent of the Zipf distributions devices and testers are drawn from, or 0 for uniform
+     * @param seed Seed of the random number generator
+     */
+    public DataGenerator(File directory, long bugs, int testers, int devices, int devicesPerTester, double skew,
+                         long seed) {
+        this.directory = directory;
+        this.bugs = bugs;
+        this.testers = testers;
+        this.devices = devices;
+        this.devicesPerTester = Math.min(devicesPerTester, devices);
+        this.skew = skew;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        if (!options.containsKey("-o")) {
+            System.err.println("Usage: java DataGenerator -o dir [-b bugs] [-t testers] [-d devices] "
+                    + "[-k devices per tester] [-z skew] [-r seed]");
+            System.exit(1);
+        }
+        long bugs = Long.parseLong(options.getOrDefault("-b", "1000000"));
+        int testers = Integer.parseInt(options.getOrDefault("-t", String.valueOf(Math.max(10, bugs / 100))));
+        int devices = Integer.parseInt(options.getOrDefault("-d", "100"));
+        int devicesPerTester = Integer.parseInt(options.getOrDefault("-k", "4"));
+        double skew = Double.parseDouble(options.getOrDefault("-z", "1.0"));
+        long seed = Long.parseLong(options.getOrDefault("-r", "1"));
+        File directory = new File(options.get("-o"));
+        Files.createDirectories(directory.toPath());
+        long start = System.nanoTime();
+        new DataGenerator(directory, bugs, testers, devices, devicesPerTester, skew, seed).generate();
+        System.out.println("Wrote " + bugs + " bugs, " + testers + " testers and " + devices + " devices to "
+                + directory + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Writes testers.csv, devices.csv, tester_device.csv and bugs.csv
+     * @throws IOException Thrown when a file cannot be written
+     */
+    public void generate() throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        writeTesters(random.split());
+        writeDevices();
+        int[][] testerDevices = writeTesterDevices(random.split());
+        writeBugs(random.split(), testerDevices);
+    }
+
+    private void writeTesters(SplittableRandom random) throws IOException {
+        try (Writer out = open("testers.csv")) {
+            out.write("\"testerId\",\"firstName\",\"lastName\",\"country\",\"lastLogin\"\n");
+            Zipf countries = new Zipf(COUNTRIES.length, skew);
+            for (int id = 1; id <= testers; id++) {
+                row(out, String.valueOf(id), FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                        LAST_NAMES[id % LAST_NAMES.length] + id, COUNTRIES[countries.sample(random)],
+                        "2013-08-04 13:27:10");
+            }
+        }
+    }
+
+    private void writeDevices() throws IOException {
+        try (Writer out = open("devices.csv")) {
+            out.write("\"deviceId\",\"description\"\n");
+            for (int id = 1; id <= devices; id++) {
+                row(out, String.valueOf(id), MODELS[(id - 1) % MODELS.length] + " " + ((id - 1) / MODELS.length + 1));
+            }
+        }
+    }
+
+    /**
+     * @return The device ids of each tester, indexed by tester id - 1
+     */
+    private int[][] writeTesterDevices(SplittableRandom random) throws IOException {
+        int[][] testerDevices = new int[testers][];
+        Zipf popularity = new Zipf(devices, skew);
+        try (Writer out = open("tester_device.csv")) {
+            out.write("\"testerId\",\"deviceId\"\n");
+            for (int tester = 0; tester < testers; tester++) {
+                int count = 1 + random.nextInt(2 * devicesPerTester - 1);
+                count = Math.min(count, devices);
+                int[] chosen = new int[count];
+                int n = 0;
+                //Draw by popularity, skipping devices already chosen; give up on popularity if that takes too long
+                for (int attempt = 0; n < count && attempt < 8 * count; attempt++) {
+                    int device = popularity.sample(random) + 1;
+                    if (!contains(chosen, n, device)) {
+                        chosen[n++] = device;
+                    }
+                }
+                for (int device = 1; n < count; device++) {
+                    if (!contains(chosen, n, device)) {
+                        chosen[n++] = device;
+                    }
+                }
+                Arrays.sort(chosen);
+                for (int device : chosen) {
+                    row(out, String.valueOf(tester + 1), String.valueOf(device));
+                }
+                testerDevices[tester] = chosen;
+            }
+        }
+        return testerDevices;
+    }
+
+    private void writeBugs(SplittableRandom random, int[][] testerDevices) throws IOException {
+        Zipf productivity = new Zipf(testers, skew);
+        //The most productive testers are spread over the id range rather than being the first few ids
+        int[] testerOfRank = new int[testers];
+        for (int i = 0; i < testers; i++) {
+            testerOfRank[i] = i;
+        }
+        for (int i = testers - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = testerOfRank[i];
+            testerOfRank[i] = testerOfRank[j];
+            testerOfRank[j] = swap;
+        }
+        try (Writer out = open("bugs.csv")) {
+            out.write("\"bugId\",\"deviceId\",\"testerId\"\n");
+            for (long id = 1; id <= bugs; id++) {
+                int tester = testerOfRank[productivity.sample(random)];
+                int[] own = testerDevices[tester];
+                int device = random.nextDouble() < UNMAPPED_BUG_FRACTION ? random.nextInt(devices) + 1
+                        : own[random.nextInt(own.length)];
+                row(out, String.valueOf(id), String.valueOf(device), String.valueOf(tester + 1));
+            }
+        }
+    }
+
+    private Writer open(String name) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(new File(directory, name).toPath(), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+    }
+
+    private static void row(Writer out, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            out.write(i == 0 ? "\"" : ",\"");
+            out.write(fields[i]);
+            out.write('"');
+        }
+        out.write('\n');
+    }
+
+    private static boolean contains(int[] values, int n, int value) {
+        for (int i = 0; i < n; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws ranks 0 to n - 1, where rank r is drawn with probability proportional to 1 / (r + 1)^exponent, by binary
+     * search on the cumulative distribution
+     */
+    private static class Zipf {
+        private final int n;
+        private final double[] cumulative;
+
+        private Zipf(int n, double exponent) {
+            this.n = n;
+            if (exponent <= 0) {
+                cumulative = null;
+                return;
+            }
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        private int sample(SplittableRandom random) {
+            if (cumulative == null) {
+                return random.nextInt(n);
+            }
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(rank < 0 ? -rank - 1 : rank, n - 1);
+        }
+    }
+}
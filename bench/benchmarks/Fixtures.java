@@ -0,0 +1,78 @@
+package benchmarks;
+
+import store.Dictionary;
+import store.PartitionedStore;
+import store.TesterStore;
+import testermatcher.TesterLoader;
+import testermatcher.TesterRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Loads a set of input files, such as one written by DataGenerator, for the benchmarks, through the program's own
+ * {@link TesterLoader}
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * @param directory Directory holding bugs.csv, testers.csv, devices.csv and tester_device.csv
+     * @param threads Number of threads with which to read the files, as with -p
+     * @param snapshot Snapshot file to read from or write to, as with -s, or null to always parse the files
+     * @param keepBugIds If false, only the bug counts are kept, as with -a
+     * @return A loader of the directory's files
+     */
+    static TesterLoader loader(String directory, int threads, File snapshot, boolean keepBugIds) {
+        Map<String, File> files = new HashMap<>();
+        files.put("-b", new File(directory, "bugs.csv"));
+        files.put("-t", new File(directory, "testers.csv"));
+        files.put("-d", new File(directory, "devices.csv"));
+        files.put("-m", new File(directory, "tester_device.csv"));
+        return new TesterLoader(files, threads, snapshot, keepBugIds, false);
+    }
+
+    /**
+     * Reads the four csv files of a directory into a store, on one thread per processor
+     * @param directory Directory holding bugs.csv, testers.csv, devices.csv and tester_device.csv
+     * @return A store holding the contents of the files
+     * @throws IOException Thrown when a file does not exist or cannot be read
+     */
+    static TesterStore load(String directory) throws IOException {
+        return loader(directory, Runtime.getRuntime().availableProcessors(), null, true).load();
+    }
+
+    /**
+     * @param store A loaded store
+     * @param partitions Number of partitions to split the store into, as with -n
+     * @return A repository searching the store in the given number of partitions
+     */
+    static TesterRepository repository(TesterStore store, int partitions) {
+        return new TesterRepository(PartitionedStore.split(store, partitions));
+    }
+
+    /**
+     * @param values Dictionary of the values to pick from
+     * @param size Size of each value, by code
+     * @param n Number of values wanted
+     * @return The n values with the largest sizes, largest first
+     */
+    static List<String> mostCommon(Dictionary values, IntUnaryOperator size, int n) {
+        List<Integer> order = new ArrayList<>();
+        for (int code = 0; code < values.size(); code++) {
+            order.add(code);
+        }
+        order.sort((a, b) -> Integer.compare(size.applyAsInt(b), size.applyAsInt(a)));
+        List<String> result = new ArrayList<>();
+        for (int code : order.subList(0, Math.min(n, order.size()))) {
+            result.add(values.decode(code));
+        }
+        return result;
+    }
+}
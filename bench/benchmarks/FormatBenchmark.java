@@ -0,0 +1,63 @@
+package benchmarks;
+
+import models.TesterResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import testermatcher.ResultFormatter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times writing the result of a query on every tester with {@link ResultFormatter}, in each of its formats. The result
+ * is written through a buffered, UTF-8 encoding writer, as the REPL and the HTTP server write it, into a stream that
+ * throws the bytes away. Run with -prof gc to see how many bytes each result allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class FormatBenchmark {
+    //Directory holding the four csv files
+    @Param("data")
+    public String dataDir;
+    //Form in which to write the result, as with \format
+    @Param({"table", "csv", "json"})
+    public String format;
+
+    //Every tester, most bugs first
+    private List<TesterResult> result;
+    private ResultFormatter.Format resultFormat;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        result = Fixtures.repository(Fixtures.load(dataDir), 1).findAll();
+        resultFormat = ResultFormatter.Format.forName(format);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(),
+                StandardCharsets.UTF_8));
+        ResultFormatter.write(result, 0, resultFormat, out);
+        out.flush();
+    }
+}
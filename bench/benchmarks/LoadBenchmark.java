@@ -0,0 +1,90 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import store.TesterStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times loading a data set with {@link testermatcher.TesterLoader}: parsing the four csv files, reading a fresh
+ * snapshot of the same store, and parsing the files when the snapshot is missing, which writes it again. A load takes
+ * long enough on a large data set that each one is timed on its own, rather than in a loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class LoadBenchmark {
+    //Directory holding the four csv files
+    @Param("data")
+    public String dataDir;
+    //Number of threads with which to read the files, as with -p
+    @Param({"1", "4"})
+    public int threads;
+    //If false, only bug counts are kept, as with -a
+    @Param({"true", "false"})
+    public boolean keepBugIds;
+
+    //A snapshot of the data set, written once and then only read
+    private File snapshot;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        snapshot = File.createTempFile("benchmark", ".snapshot");
+        Fixtures.loader(dataDir, threads, snapshot, keepBugIds).load();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() {
+        snapshot.delete();
+    }
+
+    /**
+     * A snapshot file that is deleted before every load, so that the loader parses the csv files and writes it again
+     */
+    @State(Scope.Benchmark)
+    public static class MissingSnapshot {
+        private File snapshot;
+
+        @Setup(Level.Trial)
+        public void create() throws IOException {
+            snapshot = File.createTempFile("benchmark", ".snapshot");
+        }
+
+        @Setup(Level.Invocation)
+        public void delete() {
+            snapshot.delete();
+        }
+    }
+
+    @Benchmark
+    public TesterStore csv() throws IOException {
+        return Fixtures.loader(dataDir, threads, null, keepBugIds).load();
+    }
+
+    @Benchmark
+    public TesterStore snapshot() throws IOException {
+        return Fixtures.loader(dataDir, threads, snapshot, keepBugIds).load();
+    }
+
+    @Benchmark
+    public TesterStore csvWritingSnapshot(MissingSnapshot missing) throws IOException {
+        return Fixtures.loader(dataDir, threads, missing.snapshot, keepBugIds).load();
+    }
+}
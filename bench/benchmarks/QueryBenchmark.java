@@ -0,0 +1,66 @@
+package benchmarks;
+
+import models.TesterResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import store.TesterStore;
+import testermatcher.QueryExecutor;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each shape of query on the whole store or on its partitions, without a limit, so that every matching tester's
+ * bugs are counted. Queries go through a {@link QueryExecutor} with its result cache turned off, as with -c 0, so every
+ * call does the full work. Times are sampled per call, so the results include percentiles as well as the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class QueryBenchmark {
+    //Directory holding the four csv files
+    @Param("data")
+    public String dataDir;
+    //Number of partitions to split the store into, as with -n
+    @Param({"1", "4"})
+    public int partitions;
+    //Which fields the query searches on: none, the two most common countries, the three most tested devices, or both
+    @Param({"all", "countries", "devices", "countriesAndDevices"})
+    public String shape;
+
+    private QueryExecutor executor;
+    private List<String> countries;
+    private List<String> devices;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        TesterStore whole = Fixtures.load(dataDir);
+        executor = new QueryExecutor(Fixtures.repository(whole, partitions), 0);
+        countries = shape.equals("countries") || shape.equals("countriesAndDevices")
+                ? Fixtures.mostCommon(whole.countries(), code -> whole.countryBitmap(code).cardinality(), 2)
+                : Collections.singletonList("all");
+        devices = shape.equals("devices") || shape.equals("countriesAndDevices")
+                ? Fixtures.mostCommon(whole.devices(), code -> whole.deviceBitmap(code).cardinality(), 3)
+                : Collections.singletonList("all");
+    }
+
+    @Benchmark
+    public List<TesterResult> execute() {
+        return executor.executeQuery(countries, devices);
+    }
+}
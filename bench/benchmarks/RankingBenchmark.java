@@ -0,0 +1,74 @@
+package benchmarks;
+
+import models.TesterResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import query.Query;
+import query.QueryPlanner;
+import store.PartitionedStore;
+import testermatcher.TesterRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times ranking testers by their bug counts. A query on every tester does little more than rank them all, so it is
+ * run on a {@link TesterRepository} with and without a limit; merging the partitions' results, the last step of every
+ * partitioned query, is also timed on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RankingBenchmark {
+    //Directory holding the four csv files
+    @Param("data")
+    public String dataDir;
+    //Number of partitions to split the store into, as with -n
+    @Param({"1", "4"})
+    public int partitions;
+    //Number of top testers wanted, or 0 for all of them
+    @Param({"0", "10", "1000"})
+    public int limit;
+
+    private TesterRepository repository;
+    private Query query;
+    //The unlimited result of the query on each partition, for merge to rank
+    private List<List<TesterResult>> results;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        repository = Fixtures.repository(Fixtures.load(dataDir), partitions);
+        PartitionedStore store = repository.getStore();
+        query = new Query(Collections.emptyList(), limit);
+        results = new ArrayList<>();
+        for (int i = 0; i < store.partitionCount(); i++) {
+            results.add(QueryPlanner.execute(store.partition(i), new Query(Collections.emptyList())));
+        }
+    }
+
+    @Benchmark
+    public List<TesterResult> topTesters() {
+        return repository.execute(query);
+    }
+
+    @Benchmark
+    public List<TesterResult> merge() {
+        return QueryPlanner.merge(results, limit);
+    }
+}
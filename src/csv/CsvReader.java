@@ -0,0 +1,414 @@
+package csv;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a csv file (RFC 4180) record by record, straight out of a memory-mapped view of the file. A record is never
+ * turned into Strings or Lists as a whole; instead, the reader remembers where each field of the current record starts
+ * and ends in the mapping, and fields are only decoded when asked for, either as an int or as a String.
+ *
+ * Fields may be quoted, in which case they may contain commas, line breaks and doubled ("") quotes. Records end in
+ * either \n or \r\n. Files larger than a single mapping are read through a window that slides along the file.
+ */
+public class CsvReader implements Closeable {
+    //Largest number of bytes mapped at once
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    //What close() closes: the file opened by the reader, or null if the reader reads a channel it does not own
+    private final Closeable file;
+    private final FileChannel channel;
+    private final long length;
+    private long end;
+    private final long windowSize;
+
+    //Current window onto the file, and the file position of its first byte
+    private MappedByteBuffer window;
+    private long windowStart;
+    //Position in the window at which the next record starts
+    private int position;
+
+    //Positions in the window at which each field of the current record starts and ends. A quoted field is stored
+    //without its surrounding quotes
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    //Whether each field of the current record contains doubled quotes that need unescaping
+    private boolean[] fieldEscaped = new boolean[8];
+    private int fieldCount;
+    //File positions at which the current record starts and ends
+    private long recordStart;
+    private long recordEnd;
+
+    /**
+     * Opens a reader over an entire file
+     * @param file File to read
+     * @return A reader positioned before the first record of the file
+     * @throws IOException Thrown when the file does not exist or cannot be mapped
+     */
+    public static CsvReader open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        return new CsvReader(raf, 0, raf.length(), WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a reader over the records that start in a range of a file. The range must start at the beginning of a
+     * record
+     * @param file File to read
+     * @param start Position of the first byte of the range
+     * @param end Position one past the last byte of the range
+     * @return A reader positioned before the first record of the range
+     * @throws IOException Thrown when the file does not exist or cannot be mapped
+     */
+    public static CsvReader open(File file, long start, long end) throws IOException {
+        return new CsvReader(new RandomAccessFile(file, "r"), start, end, WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a reader over the records that start in a range of a file that is already open. The range must start at
+     * the beginning of a record. Closing the reader leaves the channel open, so a file can be read through a channel
+     * that was opened once, even after another file has been moved into its place
+     * @param channel Channel of the file to read
+     * @param start Position of the first byte of the range
+     * @param end Position one past the last byte of the range
+     * @return A reader positioned before the first record of the range
+     * @throws IOException Thrown when the file cannot be mapped
+     */
+    public static CsvReader open(FileChannel channel, long start, long end) throws IOException {
+        return new CsvReader(channel, null, start, end, WINDOW_SIZE);
+    }
+
+    /**
+     * Splits a file into roughly equal byte ranges that each start at the beginning of a line, for reading by several
+     * readers at once. This assumes that no quoted field of the file contains a line break
+     * @param file File to split
+     * @param length Number of bytes of the file to split
+     * @param chunks Number of ranges wanted
+     * @return Offsets of the ranges: range i runs from offsets[i] up to offsets[i + 1]. There may be fewer ranges than
+     * asked for if the file is small
+     * @throws IOException Thrown when the file does not exist or cannot be read
+     */
+    public static long[] split(File file, long length, int chunks) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long[] offsets = new long[chunks + 1];
+            int n = 1;
+            byte[] buffer = new byte[8192];
+            for (int i = 1; i < chunks; i++) {
+                long offset = Math.max(length / chunks * i, offsets[n - 1]);
+                //Move forward to just past the next line break
+                raf.seek(offset);
+                int read = 0;
+                int k = 0;
+                while (offset < length) {
+                    if (k == read) {
+                        read = raf.read(buffer);
+                        k = 0;
+                        if (read <= 0) {
+                            offset = length;
+                            break;
+                        }
+                    }
+                    offset++;
+                    if (buffer[k++] == '\n') {
+                        break;
+                    }
+                }
+                if (offset > offsets[n - 1] && offset < length) {
+                    offsets[n++] = offset;
+                }
+            }
+            offsets[n++] = length;
+            return Arrays.copyOf(offsets, n);
+        }
+    }
+
+    /**
+     * Finds where the complete lines of a file end, so that a line still being written to the end of the file is not
+     * read as a record
+     * @param file File to look at
+     * @param from Position from which to look
+     * @return The position just past the last line break of the file at or after from, or from if there is none
+     * @throws IOException Thrown when the file does not exist or cannot be read
+     */
+    public static long completeLinesEnd(File file, long from) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return completeLinesEnd(raf.getChannel(), from, raf.length());
+        }
+    }
+
+    /**
+     * Finds where the complete lines of the first bytes of a file end
+     * @param channel Channel of the file to look at
+     * @param from Position from which to look
+     * @param length Number of bytes of the file to look at
+     * @return The position just past the last line break before length at or after from, or from if there is none
+     * @throws IOException Thrown when the file cannot be read
+     */
+    public static long completeLinesEnd(FileChannel channel, long from, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long end = length;
+        while (end > from) {
+            int n = (int) Math.min(buffer.capacity(), end - from);
+            buffer.clear().limit(n);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, end - n + buffer.position()) < 0) {
+                    throw new EOFException("File ended before byte " + end);
+                }
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return end - n + i + 1;
+                }
+            }
+            end -= n;
+        }
+        return from;
+    }
+
+    CsvReader(RandomAccessFile file, long start, long end, long windowSize) throws IOException {
+        this(file.getChannel(), file, start, end, windowSize);
+    }
+
+    private CsvReader(FileChannel channel, Closeable file, long start, long end, long windowSize) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.length = channel.size();
+        this.end = Math.min(end, length);
+        this.windowSize = windowSize;
+        map(start);
+        //Skip a UTF-8 byte order mark
+        if (start == 0 && window.limit() >= 3 && (window.get(0) & 0xFF) == 0xEF && (window.get(1) & 0xFF) == 0xBB
+                && (window.get(2) & 0xFF) == 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Advances to the next record
+     * @return True if there is a next record, false if the end of the file (or range) has been reached
+     * @throws IOException Thrown when the file cannot be mapped, or a record does not fit in a single window
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (windowStart + position >= end) {
+                fieldCount = 0;
+                return false;
+            }
+            int recordEnd = parseRecord(position);
+            if (recordEnd >= 0) {
+                this.recordStart = windowStart + position;
+                this.recordEnd = windowStart + recordEnd;
+                position = recordEnd;
+                if (fieldCount == 1 && fieldStarts[0] == fieldEnds[0]) {
+                    continue; //skip blank lines
+                }
+                return true;
+            }
+            //The record runs past the end of the window. Slide the window so that it starts with this record
+            if (position == 0) {
+                throw new IOException("Record at byte " + windowStart + " does not fit in a " + windowSize
+                        + " byte window");
+            }
+            map(windowStart + position);
+        }
+    }
+
+    /**
+     * Moves on to the records that start in another range of the file, keeping the current window if the range starts
+     * within it, so that many small ranges of a file can be read without mapping each of them. The range must start at
+     * the beginning of a record
+     * @param start Position of the first byte of the range
+     * @param end Position one past the last byte of the range
+     * @throws IOException Thrown when the file cannot be mapped
+     */
+    public void seek(long start, long end) throws IOException {
+        this.end = Math.min(end, length);
+        if (start >= windowStart && start < windowStart + window.limit()) {
+            position = (int) (start - windowStart);
+        } else {
+            map(start);
+        }
+    }
+
+    /**
+     * @return The file position of the first byte of the current record
+     */
+    public long recordStart() {
+        return recordStart;
+    }
+
+    /**
+     * @return The file position one past the last byte of the current record, line break included
+     */
+    public long recordEnd() {
+        return recordEnd;
+    }
+
+    /**
+     * @return The number of fields in the current record
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Parses a field of the current record as an int, without creating a String for it
+     * @param field Index of the field, starting at 0
+     * @return The value of the field
+     * @throws NumberFormatException Thrown when the field is not an int
+     */
+    public int intField(int field) {
+        int i = fieldStart(field);
+        int to = fieldEnds[field];
+        while (i < to && window.get(i) == ' ') {
+            i++;
+        }
+        while (to > i && window.get(to - 1) == ' ') {
+            to--;
+        }
+        boolean negative = i < to && window.get(i) == '-';
+        if (negative || (i < to && window.get(i) == '+')) {
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("Field " + field + " is not a number: \"" + stringField(field) + "\"");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Field " + field + " is not a number: \"" + stringField(field) + "\"");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("Field " + field + " is out of range: \"" + stringField(field) + "\"");
+            }
+        }
+        if (!negative && value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Field " + field + " is out of range: \"" + stringField(field) + "\"");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Decodes a field of the current record as a UTF-8 String, with any doubled quotes unescaped
+     * @param field Index of the field, starting at 0
+     * @return The value of the field
+     */
+    public String stringField(int field) {
+        int from = fieldStart(field);
+        byte[] bytes = new byte[fieldEnds[field] - from];
+        window.get(from, bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        return fieldEscaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    private int fieldStart(int field) {
+        if (field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Record has " + fieldCount + " fields, asked for field " + field);
+        }
+        return fieldStarts[field];
+    }
+
+    /**
+     * Finds the fields of the record starting at the given position of the window
+     * @param from Position of the start of the record
+     * @return Position of the start of the following record, or -1 if the record does not end within the window
+     */
+    private int parseRecord(int from) {
+        int limit = window.limit();
+        //A record may only be cut short by the end of the window if the window reaches the end of the file
+        boolean atEndOfFile = windowStart + limit == length;
+        fieldCount = 0;
+        int i = from;
+        while (true) {
+            int fieldStart = i;
+            int fieldEnd;
+            boolean escaped = false;
+            if (i < limit && window.get(i) == '"') {
+                fieldStart = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        return atEndOfFile ? finishRecord(fieldStart, limit, escaped, limit) : -1;
+                    }
+                    if (window.get(i) == '"') {
+                        if (i + 1 < limit && window.get(i + 1) == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 >= limit && !atEndOfFile) {
+                            return -1;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldEnd = i++;
+                //Tolerate stray characters between the closing quote and the next separator
+                while (i < limit && window.get(i) != ',' && window.get(i) != '\n' && window.get(i) != '\r') {
+                    i++;
+                }
+            } else {
+                while (i < limit && window.get(i) != ',' && window.get(i) != '\n' && window.get(i) != '\r') {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            if (i >= limit) {
+                return atEndOfFile ? finishRecord(fieldStart, fieldEnd, escaped, limit) : -1;
+            }
+            addField(fieldStart, fieldEnd, escaped);
+            byte separator = window.get(i++);
+            if (separator == ',') {
+                continue;
+            }
+            if (separator == '\r') {
+                if (i >= limit && !atEndOfFile) {
+                    return -1;
+                }
+                if (i < limit && window.get(i) == '\n') {
+                    i++;
+                }
+            }
+            return i;
+        }
+    }
+
+    private int finishRecord(int fieldStart, int fieldEnd, boolean escaped, int limit) {
+        addField(fieldStart, fieldEnd, escaped);
+        return limit;
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    private void map(long start) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(Math.min(windowSize, length - start), 0));
+        windowStart = start;
+        position = 0;
+    }
+}
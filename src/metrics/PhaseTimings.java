@@ -0,0 +1,42 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records how long each phase of a job took, and how many rows it processed. A phase that is recorded again, for
+ * example because the data was loaded again, replaces its earlier timing. Phases are reported in the order they were
+ * first recorded.
+ */
+public class PhaseTimings {
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+
+    /**
+     * @param phase Name of the phase
+     * @param rows Number of rows the phase processed, or 0 if it does not process rows
+     * @param nanos Time the phase took, in nanoseconds
+     */
+    public synchronized void record(String phase, long rows, long nanos) {
+        phases.put(phase, new long[]{rows, nanos});
+    }
+
+    /**
+     * @return One line per phase, giving its duration, and its rows and rows per second if it processed rows
+     */
+    public synchronized List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        phases.forEach((phase, timing) -> {
+            long rows = timing[0];
+            double millis = timing[1] / 1e6;
+            if (rows == 0) {
+                lines.add(String.format("%s: %.1f ms", phase, millis));
+            } else {
+                lines.add(String.format("%s: %d rows in %.1f ms, %.0f rows/s", phase, rows, millis,
+                        rows / Math.max(millis / 1000, 1e-9)));
+            }
+        });
+        return lines;
+    }
+}
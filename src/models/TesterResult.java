@@ -0,0 +1,50 @@
+package models;
+
+/**
+ * Models one row of a query result: a tester, and the number of bugs that tester has identified on the devices
+ * the query asked about
+ */
+public class TesterResult {
+    private int id;
+    private String firstName;
+    private String lastName;
+    private int numBugs;
+    //Where the tester comes in the order of every tester of the data set, which breaks ties between equal counts
+    private long rank;
+
+    /**
+     * Constructor for this class
+     * @param id The tester's id
+     * @param firstName The tester's first name
+     * @param lastName The tester's last name
+     * @param numBugs The number of bugs the tester has identified
+     * @param rank Where the tester comes in the order of every tester of the data set, lowest first
+     */
+    public TesterResult(int id, String firstName, String lastName, int numBugs, long rank) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.numBugs = numBugs;
+        this.rank = rank;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public int getNumBugs() {
+        return numBugs;
+    }
+
+    public long getRank() {
+        return rank;
+    }
+}
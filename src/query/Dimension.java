@@ -0,0 +1,98 @@
+package query;
+
+import store.TesterBitmap;
+import store.TesterStore;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A dimension along which testers can be searched, such as country or device. A dimension knows how to turn the
+ * values of a search into codes, how to find the testers matching those codes, how expensive that is, and how to
+ * check a single tester instead. Adding a new search dimension means implementing this interface and registering the
+ * implementation in {@link Dimensions}; neither the planner nor the repository needs to change.
+ */
+public interface Dimension {
+    /**
+     * @return The name by which searches refer to this dimension
+     */
+    String getName();
+
+    /**
+     * Looks up the codes of the given values, ignoring values that are not in the store as well as duplicate values. A
+     * value may contain wildcards (see {@link NamePattern}), in which case it stands for every value it matches
+     * @param store Store in which to look up the values
+     * @param values Values of a search, lowercased
+     * @return The distinct codes of the values that were found
+     */
+    int[] codes(TesterStore store, List<String> values);
+
+    /**
+     * @param store Store to search
+     * @param codes Codes returned by codes()
+     * @return An upper bound on the number of testers matching at least one of the codes
+     */
+    long estimate(TesterStore store, int[] codes);
+
+    /**
+     * @param store Store to search
+     * @param codes Codes returned by codes()
+     * @return The set of testers matching at least one of the codes
+     */
+    TesterBitmap testers(TesterStore store, int[] codes);
+
+    /**
+     * @param store Store to search
+     * @param codes Codes returned by codes()
+     * @return A test of whether a single tester matches at least one of the codes
+     */
+    IntPredicate probe(TesterStore store, int[] codes);
+
+    /**
+     * @param codes Codes returned by codes()
+     * @return The relative cost of running the test returned by probe() on one tester, where 1 is an array lookup
+     */
+    long probeCost(int[] codes);
+
+    /**
+     * @return True if searching this dimension also restricts which of a tester's bugs count, as searching by device
+     * does. A query may search at most one such dimension
+     */
+    default boolean restrictsBugs() {
+        return false;
+    }
+
+    /**
+     * Counts the bugs of the given testers that match the codes. Only called if restrictsBugs() is true
+     * @param store Store to search
+     * @param codes Codes returned by codes()
+     * @param testers Testers whose bugs to count
+     * @return Function from a tester in testers to the number of that tester's bugs that match the codes
+     */
+    default IntUnaryOperator bugCounts(TesterStore store, int[] codes, TesterBitmap testers) {
+        throw new UnsupportedOperationException(getName() + " does not restrict bugs");
+    }
+
+    /**
+     * @param store Store to search
+     * @param codes Codes returned by codes()
+     * @return The testers matching at least one of the codes as ranges of tester indexes, each range a start
+     * (inclusive) followed by an end (exclusive), in increasing order. Null if the testers are not consecutive
+     */
+    default int[] testerRanges(TesterStore store, int[] codes) {
+        return null;
+    }
+
+    /**
+     * Counts the bugs matching the codes of the testers in the given ranges, summing only the cells of the store that
+     * lie in the ranges rather than finding the testers first. Only called if restrictsBugs() is true
+     * @param store Store to search
+     * @param codes Codes returned by codes()
+     * @param ranges Ranges of tester indexes, as returned by testerRanges()
+     * @return Every tester in the ranges that matches the codes, in increasing order, with its count
+     */
+    default TesterCounts cellCounts(TesterStore store, int[] codes, int[] ranges) {
+        throw new UnsupportedOperationException(getName() + " does not restrict bugs");
+    }
+}
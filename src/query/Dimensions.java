@@ -0,0 +1,263 @@
+package query;
+
+import store.Dictionary;
+import store.TesterBitmap;
+import store.TesterStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * The dimensions testers can be searched by
+ */
+public class Dimensions {
+    public static final Dimension COUNTRY = new CountryDimension();
+    public static final Dimension DEVICE = new DeviceDimension();
+
+    private static final Map<String, Dimension> BY_NAME = new LinkedHashMap<>();
+
+    static {
+        BY_NAME.put(COUNTRY.getName(), COUNTRY);
+        BY_NAME.put(DEVICE.getName(), DEVICE);
+    }
+
+    /**
+     * @param name Name of a dimension
+     * @return The dimension with that name, or null if there is none
+     */
+    public static Dimension forName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @return Every dimension, in the order they were registered
+     */
+    public static List<Dimension> all() {
+        return Collections.unmodifiableList(new ArrayList<>(BY_NAME.values()));
+    }
+
+    /**
+     * Looks up the codes of values, expanding each value with wildcards into the codes of every string it matches
+     */
+    private static int[] codes(Dictionary dictionary, List<String> values) {
+        IntStream.Builder codes = IntStream.builder();
+        for (String value : values) {
+            if (NamePattern.isPattern(value)) {
+                NamePattern.forEachMatch(dictionary, value, codes);
+            } else {
+                codes.accept(dictionary.code(value));
+            }
+        }
+        return codes.build().filter(code -> code >= 0).distinct().toArray();
+    }
+
+    /**
+     * Searches testers by the country they are based in
+     */
+    private static class CountryDimension implements Dimension {
+        @Override
+        public String getName() {
+            return "country";
+        }
+
+        @Override
+        public int[] codes(TesterStore store, List<String> values) {
+            return Dimensions.codes(store.countries(), values);
+        }
+
+        @Override
+        public long estimate(TesterStore store, int[] codes) {
+            long estimate = 0;
+            for (int code : codes) {
+                estimate += store.countryBitmap(code).cardinality();
+            }
+            return estimate;
+        }
+
+        @Override
+        public TesterBitmap testers(TesterStore store, int[] codes) {
+            List<TesterBitmap> bitmaps = new ArrayList<>(codes.length);
+            for (int code : codes) {
+                bitmaps.add(store.countryBitmap(code));
+            }
+            return TesterBitmap.or(bitmaps);
+        }
+
+        @Override
+        public IntPredicate probe(TesterStore store, int[] codes) {
+            boolean[] selected = new boolean[store.countries().size()];
+            for (int code : codes) {
+                selected[code] = true;
+            }
+            return tester -> selected[store.testerCountry(tester)];
+        }
+
+        @Override
+        public long probeCost(int[] codes) {
+            return 1;
+        }
+
+        /**
+         * The testers of each country have consecutive indexes, so each country is a single range
+         */
+        @Override
+        public int[] testerRanges(TesterStore store, int[] codes) {
+            int[] sorted = codes.clone();
+            Arrays.sort(sorted);
+            int[] ranges = new int[sorted.length * 2];
+            for (int i = 0; i < sorted.length; i++) {
+                ranges[2 * i] = store.countryStart(sorted[i]);
+                ranges[2 * i + 1] = store.countryEnd(sorted[i]);
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Searches testers by the devices they test. Only bugs identified on the searched devices are counted
+     */
+    private static class DeviceDimension implements Dimension {
+        @Override
+        public String getName() {
+            return "device";
+        }
+
+        @Override
+        public int[] codes(TesterStore store, List<String> values) {
+            return Dimensions.codes(store.devices(), values);
+        }
+
+        @Override
+        public long estimate(TesterStore store, int[] codes) {
+            long estimate = 0;
+            for (int code : codes) {
+                estimate += store.deviceEnd(code) - store.deviceStart(code);
+            }
+            return estimate;
+        }
+
+        @Override
+        public TesterBitmap testers(TesterStore store, int[] codes) {
+            List<TesterBitmap> bitmaps = new ArrayList<>(codes.length);
+            for (int code : codes) {
+                bitmaps.add(store.deviceBitmap(code));
+            }
+            return TesterBitmap.or(bitmaps);
+        }
+
+        @Override
+        public IntPredicate probe(TesterStore store, int[] codes) {
+            return tester -> {
+                for (int code : codes) {
+                    if (store.pair(tester, code) >= 0) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        @Override
+        public long probeCost(int[] codes) {
+            //A binary search among the pairs of each device
+            return codes.length * 16L;
+        }
+
+        @Override
+        public boolean restrictsBugs() {
+            return true;
+        }
+
+        /**
+         * When there are few testers, looks up each tester's pair on each device. Otherwise sums every pair of the
+         * devices into an array indexed by tester, which is a linear pass over the pairs. Either way the bug counts
+         * of each device are looked up once, up front
+         */
+        @Override
+        public IntUnaryOperator bugCounts(TesterStore store, int[] codes, TesterBitmap testers) {
+            IntUnaryOperator[] deviceBugCounts = new IntUnaryOperator[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                deviceBugCounts[i] = store.pairBugCounts(codes[i]);
+            }
+            if (testers.cardinality() * probeCost(codes) < estimate(store, codes)) {
+                return tester -> {
+                    int bugs = 0;
+                    for (int i = 0; i < codes.length; i++) {
+                        int pair = store.pair(tester, codes[i]);
+                        if (pair >= 0) {
+                            bugs += deviceBugCounts[i].applyAsInt(pair);
+                        }
+                    }
+                    return bugs;
+                };
+            }
+            int[] bugs = new int[store.testerCount()];
+            for (int i = 0; i < codes.length; i++) {
+                for (int pair = store.deviceStart(codes[i]); pair < store.deviceEnd(codes[i]); pair++) {
+                    bugs[store.pairTester(pair)] += deviceBugCounts[i].applyAsInt(pair);
+                }
+            }
+            return tester -> bugs[tester];
+        }
+
+        /**
+         * The pairs of each device are sorted by tester, so the pairs in a range of testers are found with two binary
+         * searches and are consecutive. With one device they are already the answer; with several, a tester may have
+         * a pair on more than one of them, so the pairs are sorted by tester and the counts of each tester summed
+         */
+        @Override
+        public TesterCounts cellCounts(TesterStore store, int[] codes, int[] ranges) {
+            int cellsPerCode = ranges.length / 2;
+            int size = 0;
+            int[] from = new int[codes.length * cellsPerCode];
+            int[] to = new int[from.length];
+            for (int i = 0; i < codes.length; i++) {
+                for (int r = 0; r < ranges.length; r += 2) {
+                    int cell = i * cellsPerCode + r / 2;
+                    from[cell] = store.pairFrom(codes[i], ranges[r]);
+                    to[cell] = store.pairFrom(codes[i], ranges[r + 1]);
+                    size += to[cell] - from[cell];
+                }
+            }
+            if (codes.length == 1) {
+                IntUnaryOperator bugCounts = store.pairBugCounts(codes[0]);
+                TesterCounts counts = new TesterCounts(size);
+                for (int cell = 0; cell < from.length; cell++) {
+                    for (int pair = from[cell]; pair < to[cell]; pair++) {
+                        counts.add(store.pairTester(pair), bugCounts.applyAsInt(pair));
+                    }
+                }
+                return counts;
+            }
+            //Each tester index in the high half, so that sorting groups the pairs of each tester in tester order
+            long[] packed = new long[size];
+            int n = 0;
+            for (int i = 0; i < codes.length; i++) {
+                IntUnaryOperator bugCounts = store.pairBugCounts(codes[i]);
+                for (int cell = i * cellsPerCode; cell < (i + 1) * cellsPerCode; cell++) {
+                    for (int pair = from[cell]; pair < to[cell]; pair++) {
+                        packed[n++] = (long) store.pairTester(pair) << 32 | bugCounts.applyAsInt(pair);
+                    }
+                }
+            }
+            Arrays.sort(packed);
+            TesterCounts counts = new TesterCounts(size);
+            for (int i = 0; i < size; ) {
+                int tester = (int) (packed[i] >>> 32);
+                int bugs = 0;
+                for (; i < size && (int) (packed[i] >>> 32) == tester; i++) {
+                    bugs += (int) packed[i];
+                }
+                counts.add(tester, bugs);
+            }
+            return counts;
+        }
+    }
+}
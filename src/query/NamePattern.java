@@ -0,0 +1,74 @@
+package query;
+
+import store.Dictionary;
+
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Search values with wildcards, such as "iphone*" or "galaxy s?": a * stands for any number of characters, and a ?
+ * for any single character. A pattern is expanded into the codes of the dictionary strings it matches by looking up
+ * the part of the pattern before its first wildcard as a prefix, so that only the strings with that prefix are ever
+ * looked at. A pattern that starts with a wildcard has no such prefix, and is matched against every string.
+ */
+class NamePattern {
+    private NamePattern() {
+    }
+
+    /**
+     * @param value A search value
+     * @return True if the value contains a wildcard
+     */
+    static boolean isPattern(String value) {
+        return value.indexOf('*') >= 0 || value.indexOf('?') >= 0;
+    }
+
+    /**
+     * Finds every string of a dictionary that matches a pattern
+     * @param dictionary Dictionary to search
+     * @param pattern Pattern to match, as a whole, against each string
+     * @param action Called with the code of each matching string
+     */
+    static void forEachMatch(Dictionary dictionary, String pattern, IntConsumer action) {
+        int wildcard = firstWildcard(pattern);
+        String prefix = pattern.substring(0, wildcard);
+        if (wildcard == pattern.length() - 1 && pattern.charAt(wildcard) == '*') {
+            dictionary.forEachWithPrefix(prefix, action);
+            return;
+        }
+        Pattern regex = toRegex(pattern);
+        dictionary.forEachWithPrefix(prefix, code -> {
+            if (regex.matcher(dictionary.decode(code)).matches()) {
+                action.accept(code);
+            }
+        });
+    }
+
+    private static int firstWildcard(String pattern) {
+        int star = pattern.indexOf('*');
+        int question = pattern.indexOf('?');
+        return star < 0 ? question : question < 0 ? star : Math.min(star, question);
+    }
+
+    /**
+     * @return A regular expression matching the same strings as a pattern, with everything but the wildcards quoted
+     */
+    private static Pattern toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > literal) {
+                    regex.append(Pattern.quote(pattern.substring(literal, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literal = i + 1;
+            }
+        }
+        if (literal < pattern.length()) {
+            regex.append(Pattern.quote(pattern.substring(literal)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -0,0 +1,46 @@
+package query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Restricts a search to the testers matching at least one of a list of values along one dimension, for example
+ * country IN (gb, us). A predicate may also match every value, in which case it does not restrict the search at all
+ */
+public class Predicate {
+    private final Dimension dimension;
+    private final List<String> values;
+
+    /**
+     * Constructor for this class
+     * @param dimension Dimension to search
+     * @param values Values to search for, lowercased
+     */
+    public Predicate(Dimension dimension, List<String> values) {
+        this.dimension = dimension;
+        this.values = values;
+    }
+
+    /**
+     * @param dimension Dimension to search
+     * @return A predicate matching every value of the dimension
+     */
+    public static Predicate all(Dimension dimension) {
+        return new Predicate(dimension, null);
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return The values to search for, or an empty list if this predicate matches every value
+     */
+    public List<String> getValues() {
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    public boolean isAll() {
+        return values == null;
+    }
+}
@@ -0,0 +1,44 @@
+package query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A search for testers: the conjunction of a predicate on each of any number of dimensions. A dimension without a
+ * predicate is not restricted. A query may also ask for only the testers with the most bugs
+ */
+public class Query {
+    private final List<Predicate> predicates;
+    //Maximum number of testers to return, or 0 for every matching tester
+    private final int limit;
+
+    /**
+     * Constructor for this class
+     * @param predicates Predicates every matching tester must satisfy
+     */
+    public Query(List<Predicate> predicates) {
+        this(predicates, 0);
+    }
+
+    /**
+     * Constructor for this class
+     * @param predicates Predicates every matching tester must satisfy
+     * @param limit Maximum number of testers to return, or 0 for every matching tester
+     */
+    public Query(List<Predicate> predicates, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.predicates = Collections.unmodifiableList(new ArrayList<>(predicates));
+        this.limit = limit;
+    }
+
+    public List<Predicate> getPredicates() {
+        return predicates;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
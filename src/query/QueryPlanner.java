@@ -0,0 +1,164 @@
+package query;
+
+import models.TesterResult;
+import store.TesterBitmap;
+import store.TesterStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Runs a {@link Query} against a store. Rather than routing each combination of dimensions to its own code path, the
+ * planner orders the predicates by the number of testers each is estimated to match, evaluates the most selective one
+ * as a bitmap, and then narrows the candidates down one predicate at a time. A predicate is applied either by
+ * intersecting with the union of its bitmaps, or, when only a few candidates are left, by testing each candidate on
+ * its own, whichever is estimated to be cheaper. Bugs are counted last, and only for the testers that matched, which
+ * are then ranked without sorting the whole list (see {@link Ranking}).
+ *
+ * A query that restricts bugs on one dimension and otherwise only searches a dimension whose testers are consecutive,
+ * such as devices and countries, skips the bitmaps: the store keeps the (device, country) cells of its bug counts
+ * together, so the counts of the matching cells are read directly.
+ */
+public class QueryPlanner {
+    //Most bugs first, and then by rank
+    private static final Comparator<TesterResult> RESULT_ORDER = Comparator.comparingInt(TesterResult::getNumBugs)
+            .reversed().thenComparingLong(TesterResult::getRank);
+
+    /**
+     * A predicate whose values have been looked up in the store
+     */
+    private static class Step {
+        private final Dimension dimension;
+        private final int[] codes;
+        private final long estimate;
+
+        private Step(TesterStore store, Predicate predicate) {
+            this.dimension = predicate.getDimension();
+            this.codes = dimension.codes(store, predicate.getValues());
+            this.estimate = dimension.estimate(store, codes);
+        }
+    }
+
+    /**
+     * Runs a query
+     * @param store Version of the store to search
+     * @param query Query to run
+     * @return The testers matching every predicate of the query, sorted on the number of bugs they have identified,
+     * most first, and cut off at the query's limit. Testers with equal counts are grouped by country, and within a
+     * country are in the order they were loaded. When a predicate restricts bugs, each tester's count is restricted to
+     * the bugs matching that predicate; otherwise it is their total count
+     * @throws IllegalArgumentException Thrown when more than one predicate of the query restricts bugs
+     */
+    public static List<TesterResult> execute(TesterStore store, Query query) {
+        List<Step> steps = new ArrayList<>();
+        Step counting = null;
+        for (Predicate predicate : query.getPredicates()) {
+            if (predicate.isAll()) {
+                continue;
+            }
+            Step step = new Step(store, predicate);
+            if (step.dimension.restrictsBugs()) {
+                if (counting != null) {
+                    throw new IllegalArgumentException("Cannot search both " + counting.dimension.getName() + " and "
+                            + step.dimension.getName());
+                }
+                counting = step;
+            }
+            steps.add(step);
+        }
+        if (steps.isEmpty()) {
+            int[] counts = new int[store.testerCount()];
+            for (int tester = 0; tester < counts.length; tester++) {
+                counts[tester] = store.testerBugCount(tester);
+            }
+            return toResults(store, null, counts, query.getLimit());
+        }
+
+        if (counting != null && steps.size() == 2) {
+            Step other = steps.get(steps.get(0) == counting ? 1 : 0);
+            int[] ranges = other.dimension.testerRanges(store, other.codes);
+            if (ranges != null) {
+                TesterCounts cells = counting.dimension.cellCounts(store, counting.codes, ranges);
+                return toResults(store, cells.testers(), cells.counts(), query.getLimit());
+            }
+        }
+
+        steps.sort(Comparator.comparingLong(step -> step.estimate));
+        TesterBitmap testers = steps.get(0).dimension.testers(store, steps.get(0).codes);
+        for (Step step : steps.subList(1, steps.size())) {
+            if (testers.isEmpty()) {
+                break;
+            }
+            if (testers.cardinality() * step.dimension.probeCost(step.codes) < step.estimate) {
+                testers = testers.filter(step.dimension.probe(store, step.codes));
+            } else {
+                testers = testers.and(step.dimension.testers(store, step.codes));
+            }
+        }
+
+        IntUnaryOperator bugs = counting == null ? store::testerBugCount
+                : counting.dimension.bugCounts(store, counting.codes, testers);
+        int[] matched = testers.toArray();
+        int[] counts = new int[matched.length];
+        for (int i = 0; i < matched.length; i++) {
+            counts[i] = bugs.applyAsInt(matched[i]);
+        }
+        return toResults(store, matched, counts, query.getLimit());
+    }
+
+    /**
+     * Merges the results of running one query on several stores, such as the partitions or shards of a data set
+     * @param results The result of the query on each store, each sorted most bugs first, and then by rank
+     * @param limit Maximum number of testers to return, or 0 for all of them
+     * @return The testers with the most bugs across every result, most first. Testers with equal counts are in the
+     * order of their ranks, as they would be in the result of a single store holding every tester
+     */
+    public static List<TesterResult> merge(List<List<TesterResult>> results, int limit) {
+        int total = 0;
+        for (List<TesterResult> result : results) {
+            total += result.size();
+        }
+        int k = limit <= 0 ? total : Math.min(limit, total);
+        //Each result is already in order, so repeatedly take the best of their heads. There are only ever a few
+        int[] next = new int[results.size()];
+        List<TesterResult> merged = new ArrayList<>(k);
+        while (merged.size() < k) {
+            TesterResult best = null;
+            int from = -1;
+            for (int i = 0; i < next.length; i++) {
+                if (next[i] < results.get(i).size()) {
+                    TesterResult head = results.get(i).get(next[i]);
+                    if (best == null || RESULT_ORDER.compare(head, best) < 0) {
+                        best = head;
+                        from = i;
+                    }
+                }
+            }
+            merged.add(best);
+            next[from]++;
+        }
+        return merged;
+    }
+
+    /**
+     * @param testers Matching testers in increasing order, or null if every tester matched
+     * @param counts Bug count of each matching tester
+     * @param limit Maximum number of testers to return, or 0 for all of them
+     * @return The testers with the most bugs, most first
+     */
+    private static List<TesterResult> toResults(TesterStore store, int[] testers, int[] counts, int limit) {
+        int[] ranked = Ranking.rank(counts, limit);
+        List<TesterResult> result = new ArrayList<>(ranked.length);
+        for (int i : ranked) {
+            result.add(toResult(store, testers == null ? i : testers[i], counts[i]));
+        }
+        return result;
+    }
+
+    private static TesterResult toResult(TesterStore store, int tester, int numBugs) {
+        return new TesterResult(store.testerId(tester), store.firstName(tester), store.lastName(tester), numBugs,
+                store.testerRank(tester));
+    }
+}
@@ -0,0 +1,109 @@
+package query;
+
+import java.util.Arrays;
+
+/**
+ * Orders testers by bug count, most bugs first, and testers with equal counts by tester index, keeping only the
+ * first few if asked to. Bug counts are small integers, so most of the time this is a counting sort: one pass to
+ * build a histogram of counts, which tells how many testers have at least each count, and one pass to drop every
+ * tester in its place. Neither pass compares two testers. When the counts are too spread out for a histogram to pay
+ * off, a bounded heap keeps the best testers seen so far instead.
+ */
+class Ranking {
+    //A histogram is used as long as it has at most this many buckets per tester, plus HISTOGRAM_SLACK
+    private static final int BUCKETS_PER_TESTER = 4;
+    private static final int HISTOGRAM_SLACK = 1024;
+
+    /**
+     * @param counts Bug count of each candidate, in increasing order of tester index
+     * @param limit Maximum number of candidates to return, or 0 for all of them
+     * @return Positions in counts of the best candidates, best first
+     */
+    static int[] rank(int[] counts, int limit) {
+        int k = limit <= 0 ? counts.length : Math.min(limit, counts.length);
+        int max = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        if (max <= (long) counts.length * BUCKETS_PER_TESTER + HISTOGRAM_SLACK) {
+            return countingSort(counts, max, k);
+        }
+        return heapSort(counts, k);
+    }
+
+    private static int[] countingSort(int[] counts, int max, int k) {
+        int[] histogram = new int[max + 1];
+        for (int count : counts) {
+            histogram[count]++;
+        }
+        //Find the lowest count that makes the cut, and how many of the testers with that count do. Meanwhile turn
+        //the histogram into the position at which each count starts
+        int threshold = max;
+        int position = 0;
+        while (position + histogram[threshold] < k) {
+            int n = histogram[threshold];
+            histogram[threshold] = position;
+            position += n;
+            threshold--;
+        }
+        int atThreshold = k - position;
+        histogram[threshold] = position;
+
+        int[] result = new int[k];
+        for (int i = 0; i < counts.length; i++) {
+            int count = counts[i];
+            if (count > threshold || (count == threshold && atThreshold-- > 0)) {
+                result[histogram[count]++] = i;
+            }
+        }
+        return result;
+    }
+
+    private static int[] heapSort(int[] counts, int k) {
+        //A key sorts higher the higher the count, and then the lower the position
+        long[] heap = new long[k];
+        int size = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long key = ((long) counts[i] << 32) | (~i & 0xFFFFFFFFL);
+            if (size < k) {
+                heap[size++] = key;
+                siftUp(heap, size - 1);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap);
+        int[] result = new int[k];
+        for (int i = 0; i < k; i++) {
+            result[i] = ~(int) heap[k - 1 - i];
+        }
+        return result;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long key = heap[i];
+        while (i > 0 && heap[(i - 1) / 2] > key) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+}
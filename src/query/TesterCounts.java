@@ -0,0 +1,49 @@
+package query;
+
+import java.util.Arrays;
+
+/**
+ * A list of testers, each with a bug count, that grows as testers are added
+ */
+public class TesterCounts {
+    private int[] testers;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Constructor for this class
+     * @param capacity Number of testers to make room for up front
+     */
+    public TesterCounts(int capacity) {
+        this.testers = new int[Math.max(capacity, 1)];
+        this.counts = new int[testers.length];
+    }
+
+    /**
+     * @param tester A tester index
+     * @param count The tester's bug count
+     */
+    public void add(int tester, int count) {
+        if (size == testers.length) {
+            testers = Arrays.copyOf(testers, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        testers[size] = tester;
+        counts[size] = count;
+        size++;
+    }
+
+    /**
+     * @return The testers, in the order they were added
+     */
+    public int[] testers() {
+        return Arrays.copyOf(testers, size);
+    }
+
+    /**
+     * @return The count of each tester, in the order the testers were added
+     */
+    public int[] counts() {
+        return Arrays.copyOf(counts, size);
+    }
+}
@@ -0,0 +1,66 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Bug ids kept off the heap, in a direct buffer or in a section of a memory-mapped snapshot. Rows are read with
+ * absolute gets, so any number of threads may read at once. A buffer is addressed by int, which limits the storage to
+ * about 500 million bugs
+ */
+class BufferBugStorage implements BugStorage {
+    private final IntBuffer bugIds;
+
+    /**
+     * Constructor for this class
+     * @param bugIds The bug id of each row, from position 0 up to the buffer's limit
+     */
+    BufferBugStorage(IntBuffer bugIds) {
+        this.bugIds = bugIds;
+    }
+
+    /**
+     * @param size Number of rows
+     * @return Storage for the given number of bug ids in a new direct buffer, all 0
+     */
+    static BufferBugStorage allocateDirect(int size) {
+        if (size > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new IllegalArgumentException("Cannot keep " + size + " bugs in a single buffer");
+        }
+        return new BufferBugStorage(ByteBuffer.allocateDirect(size * Integer.BYTES).order(ByteOrder.nativeOrder())
+                .asIntBuffer());
+    }
+
+    @Override
+    public int size() {
+        return bugIds.limit();
+    }
+
+    @Override
+    public int get(int row) {
+        return bugIds.get(row);
+    }
+
+    @Override
+    public void get(int row, int[] destination, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = bugIds.get(row + i);
+        }
+    }
+
+    @Override
+    public void set(int row, int bugId) {
+        bugIds.put(row, bugId);
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return (long) bugIds.limit() * Integer.BYTES;
+    }
+}
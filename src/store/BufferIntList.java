@@ -0,0 +1,63 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints kept off the heap, in direct buffers of a fixed number of values each. Used to
+ * collect the bugs of a store that keeps its bug ids off the heap, so that the heap does not grow with the number of
+ * bugs while they are being loaded either. Growing the list adds a buffer rather than copying the values, and a
+ * buffer's memory is given back once the list is garbage collected.
+ */
+class BufferIntList implements IntList {
+    //Number of values per buffer, as a power of two
+    private static final int BLOCK_BITS = 20;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private IntBuffer[] blocks = new IntBuffer[0];
+    private int size;
+
+    @Override
+    public void add(int value) {
+        int block = size >>> BLOCK_BITS;
+        if (block == blocks.length) {
+            blocks = Arrays.copyOf(blocks, block + 1);
+            blocks[block] = ByteBuffer.allocateDirect(BLOCK_SIZE * Integer.BYTES).order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+        }
+        blocks[block].put(size & (BLOCK_SIZE - 1), value);
+        size++;
+    }
+
+    @Override
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return blocks[index >>> BLOCK_BITS].get(index & (BLOCK_SIZE - 1));
+    }
+
+    @Override
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        blocks[index >>> BLOCK_BITS].put(index & (BLOCK_SIZE - 1), value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+}
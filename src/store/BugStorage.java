@@ -0,0 +1,79 @@
+package store;
+
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * Storage for the bug ids of a {@link TesterStore}, addressed by row. The store lays the bugs of each (tester, device)
+ * pair out in consecutive rows, so the tester and device of a bug are known from its row and only the bug id itself
+ * is stored, four bytes per bug.
+ *
+ * Bug ids may be kept on the heap, or off the heap in a direct or memory-mapped buffer. Off the heap, the space taken
+ * by the bugs is neither counted against the heap nor scanned by the garbage collector, so the size of the heap and
+ * the length of collection pauses no longer grow with the number of bugs. They may also be kept on the heap in
+ * compressed form (see {@link CompressedBugStorage}), a pair at a time, in a fraction of four bytes per bug.
+ */
+public interface BugStorage {
+
+    /**
+     * @param size Number of rows
+     * @param offHeap True to keep the rows in a direct buffer, false to keep them in an array on the heap
+     * @return Storage for the given number of bug ids, all 0
+     */
+    static BugStorage allocate(int size, boolean offHeap) {
+        return offHeap ? BufferBugStorage.allocateDirect(size) : new HeapBugStorage(new int[size]);
+    }
+
+    /**
+     * @return The number of rows
+     */
+    int size();
+
+    /**
+     * @param row A row
+     * @return The bug id in that row
+     */
+    int get(int row);
+
+    /**
+     * Copies consecutive rows into an array
+     * @param row First row to copy
+     * @param destination Array to copy the rows into
+     * @param offset Position in destination of the first row
+     * @param length Number of rows to copy
+     */
+    void get(int row, int[] destination, int offset, int length);
+
+    /**
+     * @param from First row
+     * @param to Row after the last
+     * @return An iterator over the bug ids of the rows from up to to, in order
+     */
+    default PrimitiveIterator.OfInt iterator(int from, int to) {
+        return IntStream.range(from, to).map(this::get).iterator();
+    }
+
+    /**
+     * Sets the bug id of a row. Only called while the store is being built, before any reader can see the storage
+     * @param row A row
+     * @param bugId The bug id
+     */
+    void set(int row, int bugId);
+
+    /**
+     * @return True if the rows are kept off the heap
+     */
+    boolean isOffHeap();
+
+    /**
+     * @return True if the rows are compressed, and cannot be set
+     */
+    default boolean isCompressed() {
+        return false;
+    }
+
+    /**
+     * @return An estimate of the number of bytes the rows take up, on or off the heap
+     */
+    long sizeInBytes();
+}
@@ -0,0 +1,198 @@
+package store;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Bug ids kept on the heap in compressed form. The bugs of each (tester, device) pair are sorted by id, and stored as
+ * the differences between consecutive ids, each written as a varint: seven bits per byte, the high bit set on every
+ * byte but the last of a number. The ids of a pair are usually close together, so most differences take one or two
+ * bytes rather than four.
+ *
+ * The rows of a pair are still addressed as they are in the other storages, but can only be decoded in order from the
+ * start of the pair. Reading the rows of whole pairs, as the store does, is a single sequential pass; reading a single
+ * row decodes the rows before it in its pair. The storage is built in one go from an uncompressed one, and cannot be
+ * modified afterwards.
+ */
+class CompressedBugStorage implements BugStorage {
+    //Encoded differences of every pair, one pair after the other
+    private final byte[] data;
+    //The rows of pair p are rows pairRows[p] up to pairRows[p + 1], encoded in bytes pairBytes[p] up to
+    //pairBytes[p + 1]
+    private final int[] pairRows;
+    private final int[] pairBytes;
+
+    private CompressedBugStorage(byte[] data, int[] pairRows, int[] pairBytes) {
+        this.data = data;
+        this.pairRows = pairRows;
+        this.pairBytes = pairBytes;
+    }
+
+    /**
+     * Compresses the bug ids of a store, sorting the ids of each pair
+     * @param rows Uncompressed bug ids
+     * @param pairRows The rows of pair p are rows pairRows[p] up to pairRows[p + 1]
+     * @return The same bug ids, compressed
+     * @throws IllegalStateException Thrown when the compressed ids would not fit in a single array
+     */
+    static CompressedBugStorage compress(BugStorage rows, int[] pairRows) {
+        int pairs = pairRows.length - 1;
+        int[] pairBytes = new int[pairs + 1];
+        byte[] data = new byte[Math.max(16, rows.size())];
+        int size = 0;
+        int[] ids = new int[16];
+        for (int pair = 0; pair < pairs; pair++) {
+            int count = pairRows[pair + 1] - pairRows[pair];
+            if (count > ids.length) {
+                ids = new int[Math.max(count, ids.length * 2)];
+            }
+            rows.get(pairRows[pair], ids, 0, count);
+            Arrays.sort(ids, 0, count);
+            //At most five bytes per id
+            long needed = size + count * 5L;
+            if (needed > data.length) {
+                if (needed > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Too many bug ids to compress into a single array");
+                }
+                data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, data.length * 2L)));
+            }
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                //Ids are sorted as signed ints, so the difference always fits in 32 unsigned bits
+                int delta = ids[i] - previous;
+                previous = ids[i];
+                while ((delta & ~0x7F) != 0) {
+                    data[size++] = (byte) (delta & 0x7F | 0x80);
+                    delta >>>= 7;
+                }
+                data[size++] = (byte) delta;
+            }
+            pairBytes[pair + 1] = size;
+        }
+        return new CompressedBugStorage(Arrays.copyOf(data, size), pairRows.clone(), pairBytes);
+    }
+
+    @Override
+    public int size() {
+        return pairRows[pairRows.length - 1];
+    }
+
+    @Override
+    public int get(int row) {
+        int pair = pairOf(row);
+        Decoder decoder = new Decoder(pair);
+        for (int r = pairRows[pair]; r < row; r++) {
+            decoder.nextInt();
+        }
+        return decoder.nextInt();
+    }
+
+    @Override
+    public void get(int row, int[] destination, int offset, int length) {
+        PrimitiveIterator.OfInt ids = iterator(row, row + length);
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = ids.nextInt();
+        }
+    }
+
+    /**
+     * Decodes the rows of each pair in order, skipping only the rows before from in its pair
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator(int from, int to) {
+        return new PrimitiveIterator.OfInt() {
+            private int row = from;
+            private Decoder decoder;
+
+            @Override
+            public boolean hasNext() {
+                return row < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (row >= to) {
+                    throw new NoSuchElementException();
+                }
+                if (decoder == null || !decoder.hasNext()) {
+                    int pair = pairOf(row);
+                    decoder = new Decoder(pair);
+                    for (int r = pairRows[pair]; r < row; r++) {
+                        decoder.nextInt();
+                    }
+                }
+                row++;
+                return decoder.nextInt();
+            }
+        };
+    }
+
+    @Override
+    public void set(int row, int bugId) {
+        throw new UnsupportedOperationException("Compressed bug ids cannot be modified");
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return true;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 16L + data.length + 16L + pairRows.length * 4L + 16L + pairBytes.length * 4L;
+    }
+
+    /**
+     * @return The pair a row belongs to: the last pair whose rows start at or before the row
+     */
+    private int pairOf(int row) {
+        int low = 0;
+        int high = pairRows.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pairRows[mid] <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decodes the ids of one pair, in order
+     */
+    private class Decoder {
+        private int position;
+        private final int end;
+        private int previous;
+
+        Decoder(int pair) {
+            this.position = pairBytes[pair];
+            this.end = pairBytes[pair + 1];
+        }
+
+        boolean hasNext() {
+            return position < end;
+        }
+
+        int nextInt() {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += delta;
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package store;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Maps each distinct string (a country, a device name, a tester's name) to a dense int code, and back. Codes are
+ * handed out in the order strings are first seen, starting at 0, so they can be used directly as array indexes.
+ *
+ * Encoding is not thread safe. A dictionary is only encoded into while its store is being built, and is read-only
+ * from then on, so any number of threads may look up and decode codes of a built store at once.
+ *
+ * Strings can also be looked up by prefix. The first such lookup sorts the codes by the strings they stand for, after
+ * which finding the strings with a given prefix is a binary search followed by a walk over just the matching strings.
+ */
+public class Dictionary {
+    private static final int EMPTY = -1;
+
+    //Code to string
+    private String[] values;
+    //Open-addressing table of codes, keyed on the hash of the string each code stands for
+    private int[] table;
+    private int size;
+    //Codes in the order of the strings they stand for, or null until the first lookup by prefix
+    private volatile int[] sortedCodes;
+
+    public Dictionary() {
+        values = new String[16];
+        table = new int[32];
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * Returns the code of the given string, assigning it a new one if this is the first time it has been seen
+     * @param value String to encode
+     * @return The code of value
+     */
+    public int encode(String value) {
+        int code = code(value);
+        if (code != EMPTY) {
+            return code;
+        }
+        if ((size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        insert(size);
+        return size++;
+    }
+
+    /**
+     * @param value String to look up
+     * @return The code of value, or -1 if value has never been encoded
+     */
+    public int code(String value) {
+        int mask = table.length - 1;
+        for (int i = mix(value.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int code = table[i];
+            if (code == EMPTY) {
+                return EMPTY;
+            }
+            if (values[code].equals(value)) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * @param code Code to decode
+     * @return The string the given code stands for
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Finds every string that starts with a prefix
+     * @param prefix Prefix to look for. The empty prefix matches every string
+     * @param action Called with the code of each string that starts with the prefix, in the order of the strings
+     */
+    public void forEachWithPrefix(String prefix, IntConsumer action) {
+        int[] sorted = sortedCodes();
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[sorted[mid]].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < sorted.length && values[sorted[i]].startsWith(prefix); i++) {
+            action.accept(sorted[i]);
+        }
+    }
+
+    /**
+     * @return The codes in the order of the strings they stand for, sorting them first if they have never been sorted,
+     * or strings have been encoded since. Two threads may both sort them, in which case either result is kept
+     */
+    private int[] sortedCodes() {
+        int[] sorted = sortedCodes;
+        if (sorted == null || sorted.length != size) {
+            sorted = new int[size];
+            for (int code = 0; code < size; code++) {
+                sorted[code] = code;
+            }
+            sort(sorted, new int[size], 0, size);
+            sortedCodes = sorted;
+        }
+        return sorted;
+    }
+
+    /**
+     * Sorts a range of codes by the strings they stand for with a merge sort, without boxing any of them
+     * @param codes Codes to sort
+     * @param scratch Array at least as long as codes, to merge into
+     * @param from First index of the range
+     * @param to Index one past the last of the range
+     */
+    private void sort(int[] codes, int[] scratch, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int code = codes[i];
+                int j = i;
+                for (; j > from && values[codes[j - 1]].compareTo(values[code]) > 0; j--) {
+                    codes[j] = codes[j - 1];
+                }
+                codes[j] = code;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(codes, scratch, from, mid);
+        sort(codes, scratch, mid, to);
+        if (values[codes[mid - 1]].compareTo(values[codes[mid]]) <= 0) {
+            return;
+        }
+        System.arraycopy(codes, from, scratch, from, to - from);
+        for (int i = from, left = from, right = mid; i < to; i++) {
+            boolean takeLeft = right == to
+                    || (left < mid && values[scratch[left]].compareTo(values[scratch[right]]) <= 0);
+            codes[i] = scratch[takeLeft ? left++ : right++];
+        }
+    }
+
+    /**
+     * @return The number of distinct strings in this dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return An estimate of the number of bytes of heap this dictionary takes up, assuming each string is stored with
+     * one byte per character
+     */
+    public long sizeInBytes() {
+        long bytes = 16L + (16L + values.length * 4L) + (16L + table.length * 4L);
+        int[] sorted = sortedCodes;
+        if (sorted != null) {
+            bytes += 16L + sorted.length * 4L;
+        }
+        for (int code = 0; code < size; code++) {
+            bytes += 24L + 16L + values[code].length();
+        }
+        return bytes;
+    }
+
+    private void insert(int code) {
+        int mask = table.length - 1;
+        int i = mix(values[code].hashCode()) & mask;
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = code;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        for (int code = 0; code < size; code++) {
+            insert(code);
+        }
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,46 @@
+package store;
+
+/**
+ * Bug ids kept in an array on the heap
+ */
+class HeapBugStorage implements BugStorage {
+    private final int[] bugIds;
+
+    /**
+     * Constructor for this class
+     * @param bugIds The bug id of each row. The array is used as it is, not copied
+     */
+    HeapBugStorage(int[] bugIds) {
+        this.bugIds = bugIds;
+    }
+
+    @Override
+    public int size() {
+        return bugIds.length;
+    }
+
+    @Override
+    public int get(int row) {
+        return bugIds[row];
+    }
+
+    @Override
+    public void get(int row, int[] destination, int offset, int length) {
+        System.arraycopy(bugIds, row, destination, offset, length);
+    }
+
+    @Override
+    public void set(int row, int bugId) {
+        bugIds[row] = bugId;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 16L + bugIds.length * 4L;
+    }
+}
@@ -0,0 +1,51 @@
+package store;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints kept in an array on the heap
+ */
+class HeapIntList implements IntList {
+    private int[] values;
+    private int size;
+
+    HeapIntList() {
+        this(16);
+    }
+
+    /**
+     * Constructor for this class
+     * @param capacity Initial capacity of the list
+     */
+    HeapIntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    @Override
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    @Override
+    public int get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,38 @@
+package store;
+
+/**
+ * A growable list of primitive ints. Used while loading the data so that we never box row values into Integers.
+ *
+ * The values may be kept in an array on the heap (see {@link HeapIntList}), or off the heap in direct buffers (see
+ * {@link BufferIntList}).
+ */
+public interface IntList {
+
+    /**
+     * Adds a value at the end of the list
+     * @param value The value
+     */
+    void add(int value);
+
+    /**
+     * @param index Position of a value in the list
+     * @return The value at that position
+     */
+    int get(int index);
+
+    /**
+     * @param index Position of a value in the list
+     * @param value The value to put at that position
+     */
+    void set(int index, int value);
+
+    /**
+     * @return The number of values in the list
+     */
+    int size();
+
+    /**
+     * @return A copy of the values in this list, trimmed to its size
+     */
+    int[] toArray();
+}
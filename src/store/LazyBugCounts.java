@@ -0,0 +1,303 @@
+package store;
+
+import csv.CsvReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The bug counts of a store's (tester, device) pairs, read from bugs.csv one device at a time, the first time a query
+ * needs them. Loading only records where in bugs.csv the rows of each device are; a device's rows are parsed when the
+ * device is first searched for, and the counts of its pairs are then cached. The cache is bounded by a number of
+ * bytes, past which the counts of the least recently used devices are dropped, to be read again if needed.
+ *
+ * Each device keeps the byte ranges of exactly its own rows, rows next to each other in the file sharing a range, so
+ * reading a device never parses another device's rows. The ranges are stored as varints, the gap since the end of the
+ * device's previous range and the length of the range, which takes a few bytes per row when the devices' rows are
+ * interleaved, and next to nothing when the file is sorted by device.
+ *
+ * The ranges of rows of a device are byte offsets into bugs.csv, so the rows are read through the channel the file was
+ * indexed through, which stays open for as long as the store is in use. A new bugs.csv moved into place, as by a
+ * reload, is then never mixed up with the old one, which the store keeps reading until it is released, and the channel
+ * closed. Rewriting the old file in place would still change what the store reads, and rows appended to the file after
+ * it was indexed are not read by this class.
+ */
+class LazyBugCounts {
+    //Closes the channels of counts that are no longer used by any store
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final File file;
+    //Channel through which the file was indexed, and through which its rows are read
+    private final FileChannel channel;
+    //Per device code: the ranges of bugs.csv that hold the device's rows, in file order, each encoded as two varints:
+    //the number of bytes since the end of the previous range (or the start of the file), and the length of the range
+    private final byte[][] ranges;
+    //Number of rows of bugs.csv in the ranges, which have a known tester and device
+    private final int rows;
+    //Largest number of bytes of counts to keep in the cache
+    private final long memoryBudget;
+
+    //Counts of the pairs of the devices read so far, by device code, least recently used first
+    private final LinkedHashMap<Integer, int[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheBytes;
+    private long hits;
+    private long loads;
+
+    private LazyBugCounts(File file, FileChannel channel, byte[][] ranges, int rows, long memoryBudget) {
+        this.file = file;
+        this.channel = channel;
+        this.ranges = ranges;
+        this.rows = rows;
+        this.memoryBudget = memoryBudget;
+        CLEANER.register(this, () -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //Nothing more can be done with a channel that will not close
+            }
+        });
+    }
+
+    /**
+     * Finds the bug counts of the pairs of a device, reading them from bugs.csv if they are not cached
+     * @param store Store whose pairs to count the bugs of
+     * @param device A device code
+     * @return The bug counts of the pairs of the device: entry i is the count of pair store.deviceStart(device) + i
+     * @throws UncheckedIOException Thrown when bugs.csv cannot be read
+     */
+    int[] counts(TesterStore store, int device) {
+        synchronized (this) {
+            int[] counts = cache.get(device);
+            if (counts != null) {
+                hits++;
+                return counts;
+            }
+        }
+        //Read outside the lock, so that a query on a cached device never waits on one that is being read. Two queries
+        //may both read the same device, in which case the second result is simply dropped
+        int[] counts = read(store, device);
+        synchronized (this) {
+            loads++;
+            long bytes = arrayBytes(counts);
+            if (bytes <= memoryBudget && !cache.containsKey(device)) {
+                cache.put(device, counts);
+                cacheBytes += bytes;
+                Iterator<Map.Entry<Integer, int[]>> eldest = cache.entrySet().iterator();
+                while (cacheBytes > memoryBudget) {
+                    cacheBytes -= arrayBytes(eldest.next().getValue());
+                    eldest.remove();
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Parses the rows of a device, and counts the bugs of each of its pairs. The ranges hold only the device's rows,
+     * so only the tester of each row is parsed
+     */
+    private int[] read(TesterStore store, int device) {
+        int start = store.deviceStart(device);
+        int[] counts = new int[store.deviceEnd(device) - start];
+        byte[] deviceRanges = ranges[device];
+        if (deviceRanges.length == 0) {
+            return counts;
+        }
+        int[] position = {0};
+        long rangeStart = readVarLong(deviceRanges, position);
+        long rangeEnd = rangeStart + readVarLong(deviceRanges, position);
+        try (CsvReader bugs = CsvReader.open(channel, rangeStart, rangeEnd)) {
+            while (true) {
+                while (bugs.next()) {
+                    int tester = store.testerIndex(bugs.intField(2));
+                    int pair = tester < 0 ? -1 : store.pair(tester, device);
+                    if (pair >= 0) {
+                        counts[pair - start]++;
+                    }
+                }
+                if (position[0] == deviceRanges.length) {
+                    return counts;
+                }
+                rangeStart = rangeEnd + readVarLong(deviceRanges, position);
+                rangeEnd = rangeStart + readVarLong(deviceRanges, position);
+                bugs.seek(rangeStart, rangeEnd);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the bugs of a device from " + file, e);
+        }
+    }
+
+    /**
+     * Decodes a varint
+     * @param data Encoded varints
+     * @param position Single-element array holding the position of the varint, which is moved past it
+     * @return The decoded number
+     */
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * @return The number of rows of bugs.csv indexed by device
+     */
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of bytes of heap taken up by the ranges of each device
+     */
+    long indexSizeInBytes() {
+        long bytes = 16L + ranges.length * 8L;
+        for (byte[] deviceRanges : ranges) {
+            bytes += 16L + deviceRanges.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The number of bytes of heap taken up by the cached counts
+     */
+    synchronized long cacheSizeInBytes() {
+        return cacheBytes;
+    }
+
+    /**
+     * @return The number of times the counts of a device were found in the cache
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of times the counts of a device were read from bugs.csv
+     */
+    synchronized long getLoads() {
+        return loads;
+    }
+
+    private static long arrayBytes(int[] array) {
+        return 16L + array.length * 4L;
+    }
+
+    /**
+     * Collects the ranges of bugs.csv that hold the rows of each device, as the file is read in order
+     */
+    static class Index {
+        private final File file;
+        private final FileChannel channel;
+        private final long memoryBudget;
+        //Per device code: the ranges encoded so far, and the number of bytes of them in use
+        private byte[][] ranges = new byte[0][];
+        private int[] sizes = new int[0];
+        //Per device code: the range still being extended by rows that follow it, not yet encoded, which is empty
+        //while its end is 0
+        private long[] openStarts = new long[0];
+        private long[] openEnds = new long[0];
+        //Per device code: the end of the last range encoded
+        private long[] encodedEnds = new long[0];
+        private int rows;
+
+        /**
+         * Constructor for this class
+         * @param file The bugs.csv file being indexed
+         * @param channel Open channel of the file, through which it is indexed. The counts built take it over
+         * @param memoryBudget Largest number of bytes of counts to cache
+         */
+        Index(File file, FileChannel channel, long memoryBudget) {
+            this.file = file;
+            this.channel = channel;
+            this.memoryBudget = memoryBudget;
+        }
+
+        /**
+         * Adds a row of bugs.csv. Rows must be added in the order they appear in the file
+         * @param device Code of the row's device
+         * @param start File position of the first byte of the row
+         * @param end File position one past the last byte of the row
+         */
+        void add(int device, long start, long end) {
+            if (device >= ranges.length) {
+                int length = Math.max(device + 1, ranges.length * 2);
+                ranges = Arrays.copyOf(ranges, length);
+                sizes = Arrays.copyOf(sizes, length);
+                openStarts = Arrays.copyOf(openStarts, length);
+                openEnds = Arrays.copyOf(openEnds, length);
+                encodedEnds = Arrays.copyOf(encodedEnds, length);
+            }
+            rows++;
+            if (openEnds[device] == start) {
+                openEnds[device] = end;
+                return;
+            }
+            close(device);
+            openStarts[device] = start;
+            openEnds[device] = end;
+        }
+
+        /**
+         * Encodes the open range of a device, if it has one
+         */
+        private void close(int device) {
+            long openEnd = openEnds[device];
+            if (openEnd == 0) {
+                return;
+            }
+            byte[] deviceRanges = ranges[device];
+            int size = sizes[device];
+            //At most ten bytes per varint
+            if (deviceRanges == null || size + 20 > deviceRanges.length) {
+                if (size + 20L > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Too many rows of a device to index in a single array");
+                }
+                long length = Math.max(size + 20L, (deviceRanges == null ? 16 : deviceRanges.length) * 2L);
+                deviceRanges = ranges[device] = Arrays.copyOf(deviceRanges == null ? new byte[0] : deviceRanges,
+                        (int) Math.min(length, Integer.MAX_VALUE - 8));
+            }
+            size = writeVarLong(deviceRanges, size, openStarts[device] - encodedEnds[device]);
+            sizes[device] = writeVarLong(deviceRanges, size, openEnd - openStarts[device]);
+            encodedEnds[device] = openEnd;
+            openEnds[device] = 0;
+        }
+
+        private static int writeVarLong(byte[] data, int position, long value) {
+            while ((value & ~0x7FL) != 0) {
+                data[position++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            data[position++] = (byte) value;
+            return position;
+        }
+
+        /**
+         * @param deviceCount Number of device codes of the store
+         * @return The counts of the store, to be read from the ranges indexed so far
+         */
+        LazyBugCounts build(int deviceCount) {
+            byte[][] trimmed = new byte[deviceCount][];
+            for (int device = 0; device < deviceCount; device++) {
+                if (device < ranges.length) {
+                    close(device);
+                }
+                trimmed[device] = device < ranges.length && ranges[device] != null
+                        ? Arrays.copyOf(ranges[device], sizes[device]) : new byte[0];
+            }
+            return new LazyBugCounts(file, channel, trimmed, rows, memoryBudget);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package store;
+
+import java.util.stream.IntStream;
+
+/**
+ * A {@link TesterStore} split into partitions by tester id, so that a query can search the partitions in parallel
+ * and merge their results. Each partition is a store of its own, with its own dictionaries, bitmaps and pairs, and
+ * holds every device but only the testers whose id falls in the partition, along with their pairs and bugs.
+ *
+ * Like a store, a partitioned store never changes once built; applying a delta returns a new version, in which the
+ * partitions the delta does not touch are shared with this one.
+ */
+public class PartitionedStore {
+    private final TesterStore[] partitions;
+    //Incremented every time a delta is applied
+    private final long version;
+
+    /**
+     * Constructor for this class
+     * @param store Store to hold as a single partition
+     */
+    public PartitionedStore(TesterStore store) {
+        this(new TesterStore[]{store}, store.version());
+    }
+
+    private PartitionedStore(TesterStore[] partitions, long version) {
+        this.partitions = partitions;
+        this.version = version;
+    }
+
+    /**
+     * Splits a store into partitions by tester id. The partitions are built in parallel
+     * @param store Store to split
+     * @param count Number of partitions
+     * @return A partitioned store holding the same rows as the given store
+     */
+    public static PartitionedStore split(TesterStore store, int count) {
+        if (count <= 1) {
+            return new PartitionedStore(store);
+        }
+        TesterStore[] partitions = IntStream.range(0, count).parallel()
+                .mapToObj(partition -> new TesterStoreBuilder(store, id -> partitionOf(id, count) == partition)
+                        .build(store.version()))
+                .toArray(TesterStore[]::new);
+        return new PartitionedStore(partitions, store.version());
+    }
+
+    /**
+     * @param testerId A tester's id in testers.csv
+     * @param count Number of partitions
+     * @return The partition the tester belongs to
+     */
+    public static int partitionOf(int testerId, int count) {
+        return Math.floorMod(testerId, count);
+    }
+
+    /**
+     * Applies new rows of bugs.csv and tester_device.csv to the partitions of the rows' testers
+     * @param delta Rows to apply
+     * @return A new version of this store, with the delta applied
+     */
+    public PartitionedStore apply(StoreDelta delta) {
+        StoreDelta[] parts = delta.split(partitions.length);
+        TesterStore[] newPartitions = partitions.clone();
+        for (int i = 0; i < parts.length; i++) {
+            if (!parts[i].isEmpty()) {
+                newPartitions[i] = partitions[i].apply(parts[i]);
+            }
+        }
+        return new PartitionedStore(newPartitions, version + 1);
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * @param partition A partition number, from 0 up to partitionCount()
+     * @return The store holding that partition
+     */
+    public TesterStore partition(int partition) {
+        return partitions[partition];
+    }
+
+    /**
+     * @return The number of deltas applied to this store since it was loaded
+     */
+    public long version() {
+        return version;
+    }
+
+    public int testerCount() {
+        int testers = 0;
+        for (TesterStore partition : partitions) {
+            testers += partition.testerCount();
+        }
+        return testers;
+    }
+
+    public int bugCount() {
+        int bugs = 0;
+        for (TesterStore partition : partitions) {
+            bugs += partition.bugCount();
+        }
+        return bugs;
+    }
+
+    /**
+     * @return An estimate of the number of bytes of heap taken up by the indexes of every partition
+     */
+    public long indexSizeInBytes() {
+        long bytes = 0;
+        for (TesterStore partition : partitions) {
+            bytes += partition.indexSizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return An estimate of the number of bytes of heap taken up by the data of every partition
+     */
+    public long dataSizeInBytes() {
+        long bytes = 0;
+        for (TesterStore partition : partitions) {
+            bytes += partition.dataSizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The number of bytes taken up by the bug ids every partition keeps off the heap
+     */
+    public long offHeapSizeInBytes() {
+        long bytes = 0;
+        for (TesterStore partition : partitions) {
+            bytes += partition.offHeapSizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The number of times the bug counts of a device were read from bugs.csv, over every partition
+     */
+    public long lazyDeviceLoads() {
+        long loads = 0;
+        for (TesterStore partition : partitions) {
+            loads += partition.lazyDeviceLoads();
+        }
+        return loads;
+    }
+}
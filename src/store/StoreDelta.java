@@ -0,0 +1,103 @@
+package store;
+
+/**
+ * New rows of bugs.csv and tester_device.csv, to be applied to an existing store with {@link TesterStore#apply}.
+ * Rows are kept as the ids found in the files; they are resolved against the store when the delta is applied.
+ *
+ * As when loading the files, a bug only counts towards its device if its tester is mapped to that device, either
+ * already or by this delta. A mapping that arrives after a bug does not pick that bug up.
+ */
+public class StoreDelta {
+    private final IntList testerDeviceTesters = new HeapIntList();
+    private final IntList testerDeviceDevices = new HeapIntList();
+    private final IntList bugIds = new HeapIntList();
+    private final IntList bugDevices = new HeapIntList();
+    private final IntList bugTesters = new HeapIntList();
+
+    /**
+     * Adds a row of tester_device.csv
+     * @param testerId The id of the tester
+     * @param deviceId The id of a device the tester tests
+     */
+    public void addTesterDevice(int testerId, int deviceId) {
+        testerDeviceTesters.add(testerId);
+        testerDeviceDevices.add(deviceId);
+    }
+
+    /**
+     * Adds a row of bugs.csv
+     * @param bugId The id of the bug
+     * @param deviceId The id of the device on which the bug was identified
+     * @param testerId The id of the tester who identified the bug
+     */
+    public void addBug(int bugId, int deviceId, int testerId) {
+        bugIds.add(bugId);
+        bugDevices.add(deviceId);
+        bugTesters.add(testerId);
+    }
+
+    public boolean isEmpty() {
+        return testerDeviceTesters.size() == 0 && bugIds.size() == 0;
+    }
+
+    public int testerDeviceCount() {
+        return testerDeviceTesters.size();
+    }
+
+    public int bugCount() {
+        return bugIds.size();
+    }
+
+    int testerDeviceTester(int i) {
+        return testerDeviceTesters.get(i);
+    }
+
+    int testerDeviceDevice(int i) {
+        return testerDeviceDevices.get(i);
+    }
+
+    int bugId(int i) {
+        return bugIds.get(i);
+    }
+
+    int bugDevice(int i) {
+        return bugDevices.get(i);
+    }
+
+    int bugTester(int i) {
+        return bugTesters.get(i);
+    }
+
+    /**
+     * Splits this delta by tester id, as {@link PartitionedStore} splits testers
+     * @param count Number of partitions
+     * @return The rows of each partition's testers, by partition
+     */
+    StoreDelta[] split(int count) {
+        StoreDelta[] parts = new StoreDelta[count];
+        for (int i = 0; i < count; i++) {
+            parts[i] = new StoreDelta();
+        }
+        for (int i = 0; i < testerDeviceCount(); i++) {
+            parts[PartitionedStore.partitionOf(testerDeviceTester(i), count)]
+                    .addTesterDevice(testerDeviceTester(i), testerDeviceDevice(i));
+        }
+        for (int i = 0; i < bugCount(); i++) {
+            parts[PartitionedStore.partitionOf(bugTester(i), count)].addBug(bugId(i), bugDevice(i), bugTester(i));
+        }
+        return parts;
+    }
+
+    /**
+     * Adds every row of this delta to a builder, mappings first
+     * @param builder Builder to which to add the rows
+     */
+    void addTo(TesterStoreBuilder builder) {
+        for (int i = 0; i < testerDeviceCount(); i++) {
+            builder.addTesterDevice(testerDeviceTester(i), testerDeviceDevice(i));
+        }
+        for (int i = 0; i < bugCount(); i++) {
+            builder.addBug(bugId(i), bugDevice(i), bugTester(i));
+        }
+    }
+}
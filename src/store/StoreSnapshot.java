@@ -0,0 +1,388 @@
+package store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Writes a {@link TesterStore} to a compact binary file, and reads it back, so that a restart does not have to parse
+ * the csv files again. The file holds the dictionaries and the store's arrays, each int array as its length followed
+ * by its values; the bitmaps and the tester index are rebuilt from those arrays on reading, which is a single linear
+ * pass. Reading maps each section of the file and copies it into the heap in bulk, except that the bug ids may instead
+ * be left in the mapped file, off the heap, where the operating system pages them in as they are read.
+ *
+ * The layout is: magic, version, the path, length and modification time of each file the store was built from,
+ * whether bug ids are kept, the three dictionaries (each preceded by its size in bytes), the six per-tester arrays, the
+ * device ids and their codes, the per-country tester lists, and the per-device pairs and bugs. Version 2 added the
+ * device ids. Version 3 added whether bug ids are kept, and numbers testers by country, which the store relies on.
+ * Version 4 added the testers' rows in testers.csv. Version 5 added the files the store was built from.
+ */
+public class StoreSnapshot {
+    private static final int MAGIC = 0x544D5353; //"TMSS"
+    private static final int VERSION = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Checks whether a snapshot exists, and was built from the given files as they are now: the same files, with the
+     * same lengths and modification times. Comparing lengths as well as times catches a file replaced by an older one,
+     * as by copying it with its times kept
+     * @param snapshot Snapshot file
+     * @param sources Files the snapshot was built from
+     * @return True if the snapshot can be used in place of the sources, false otherwise
+     */
+    public static boolean isFresh(File snapshot, Collection<File> sources) {
+        if (!snapshot.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            return in.nextInt() == MAGIC && in.nextInt() == VERSION && in.sources().equals(Sources.of(sources));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a store to a file. The snapshot is written to a temporary file first and then moved into place, so that a
+     * failed write never leaves behind a partial snapshot that looks fresh
+     * @param store Store to write
+     * @param file File to write to
+     * @param sources The files the store was built from, as they were before they were read
+     * @throws IOException Thrown when the file cannot be written
+     */
+    public static void write(TesterStore store, File file, Sources sources) throws IOException {
+        store = store.compact();
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel);
+            out.ints(MAGIC, VERSION, sources.paths.length);
+            for (int i = 0; i < sources.paths.length; i++) {
+                out.bytes(sources.paths[i].getBytes(StandardCharsets.UTF_8));
+                out.longs(sources.lengths[i], sources.modified[i]);
+            }
+            out.ints(store.bugIdsKept ? 1 : 0);
+            out.dictionary(store.countries);
+            out.dictionary(store.devices);
+            out.dictionary(store.names);
+            out.array(store.testerIds);
+            out.array(store.firstNames);
+            out.array(store.lastNames);
+            out.array(store.testerCountry);
+            out.array(store.testerBugCount);
+            out.array(store.testerRows);
+            IntList deviceIds = new HeapIntList(store.deviceIndex.size());
+            IntList deviceCodes = new HeapIntList(store.deviceIndex.size());
+            store.deviceIndex.forEach((id, code) -> {
+                deviceIds.add(id);
+                deviceCodes.add(code);
+            });
+            out.array(deviceIds.toArray());
+            out.array(deviceCodes.toArray());
+            int[] countryOffsets = new int[store.countryBitmaps.length + 1];
+            for (int c = 0; c < store.countryBitmaps.length; c++) {
+                countryOffsets[c + 1] = countryOffsets[c] + store.countryBitmaps[c].cardinality();
+            }
+            out.array(countryOffsets);
+            out.ints(countryOffsets[countryOffsets.length - 1]);
+            for (TesterBitmap countryBitmap : store.countryBitmaps) {
+                out.ints(countryBitmap.toArray());
+            }
+            out.array(store.deviceOffsets);
+            out.array(store.pairTester);
+            out.array(store.allPairBugCounts());
+            out.array(store.pairBugOffsets);
+            out.storage(store.bugs);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a store back from a snapshot, onto the heap
+     * @param file Snapshot file to read
+     * @return The store the snapshot was written from
+     * @throws IOException Thrown when the file cannot be read, is not a snapshot, or was written by another version
+     */
+    public static TesterStore read(File file) throws IOException {
+        return read(file, false);
+    }
+
+    /**
+     * Reads a store back from a snapshot
+     * @param file Snapshot file to read
+     * @param offHeap If true, the bug ids are not copied onto the heap but read from the mapped file. The file may
+     *                still be replaced by a new snapshot afterwards, as that is written to a new file
+     * @return The store the snapshot was written from
+     * @throws IOException Thrown when the file cannot be read, is not a snapshot, or was written by another version
+     */
+    public static TesterStore read(File file, boolean offHeap) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            if (in.nextInt() != MAGIC) {
+                throw new IOException(file + " is not a snapshot");
+            }
+            int version = in.nextInt();
+            if (version != VERSION) {
+                throw new IOException(file + " is a version " + version + " snapshot, expected version " + VERSION);
+            }
+            in.sources();
+            boolean bugIdsKept = in.nextInt() != 0;
+            Dictionary countries = in.dictionary();
+            Dictionary devices = in.dictionary();
+            Dictionary names = in.dictionary();
+            int[] testerIds = in.array();
+            int[] firstNames = in.array();
+            int[] lastNames = in.array();
+            int[] testerCountry = in.array();
+            int[] testerBugCount = in.array();
+            int[] testerRows = in.array();
+            int[] deviceIds = in.array();
+            int[] deviceCodes = in.array();
+            IntIntMap deviceIndex = new IntIntMap(deviceIds.length);
+            for (int i = 0; i < deviceIds.length; i++) {
+                deviceIndex.put(deviceIds[i], deviceCodes[i]);
+            }
+            int[] countryOffsets = in.array();
+            int[] countryTesters = in.array();
+            int[] deviceOffsets = in.array();
+            int[] pairTester = in.array();
+            int[] pairBugCount = in.array();
+            int[] pairBugOffsets = in.array();
+            BugStorage bugIds = offHeap ? new BufferBugStorage(in.mappedArray()) : new HeapBugStorage(in.array());
+            return new TesterStore(countries, devices, names, testerIds, firstNames, lastNames, testerCountry,
+                    testerBugCount, testerRows, deviceIndex, countryOffsets, countryTesters, deviceOffsets,
+                    pairTester, pairBugCount, pairBugOffsets, bugIds, bugIdsKept, null, 0);
+        }
+    }
+
+    /**
+     * Writes ints and strings through a fixed-size buffer
+     */
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ints(int... values) throws IOException {
+            ints(values, values.length);
+        }
+
+        private void ints(int[] values, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    flush();
+                }
+                buffer.putInt(values[i]);
+            }
+        }
+
+        private void longs(long... values) throws IOException {
+            for (long value : values) {
+                ints((int) (value >>> 32), (int) value);
+            }
+        }
+
+        private void array(int[] values) throws IOException {
+            ints(values.length);
+            ints(values);
+        }
+
+        /**
+         * Writes an array of bytes, preceded by its length
+         */
+        private void bytes(byte[] value) throws IOException {
+            ints(value.length);
+            for (int i = 0; i < value.length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(buffer.remaining(), value.length - i);
+                buffer.put(value, i, n);
+                i += n;
+            }
+        }
+
+        private void storage(BugStorage storage) throws IOException {
+            ints(storage.size());
+            int[] rows = new int[BUFFER_SIZE / Integer.BYTES];
+            for (int row = 0; row < storage.size(); row += rows.length) {
+                int length = Math.min(rows.length, storage.size() - row);
+                storage.get(row, rows, 0, length);
+                ints(rows, length);
+            }
+        }
+
+        private void dictionary(Dictionary dictionary) throws IOException {
+            byte[][] encoded = new byte[dictionary.size()][];
+            long size = Integer.BYTES;
+            for (int code = 0; code < encoded.length; code++) {
+                encoded[code] = dictionary.decode(code).getBytes(StandardCharsets.UTF_8);
+                size += Integer.BYTES + encoded[code].length;
+            }
+            longs(size);
+            ints(encoded.length);
+            for (byte[] value : encoded) {
+                bytes(value);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads the sections of a snapshot in order, mapping each array and dictionary in turn. The few ints and longs
+     * between them are read into a small buffer instead, as mapping them would cost a system call each
+     */
+    private static class Reader {
+        private final FileChannel channel;
+        private long position;
+
+        private Reader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private MappedByteBuffer map(long size) throws IOException {
+            if (position + size > channel.size()) {
+                throw new IOException("Snapshot is truncated");
+            }
+            MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            position += size;
+            return section;
+        }
+
+        /**
+         * Reads the next bytes of the file into a buffer on the heap
+         */
+        private ByteBuffer read(int size) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(size);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, position + bytes.position()) < 0) {
+                    throw new IOException("Snapshot is truncated");
+                }
+            }
+            position += size;
+            return bytes.flip();
+        }
+
+        private int nextInt() throws IOException {
+            return read(Integer.BYTES).getInt();
+        }
+
+        private long nextLong() throws IOException {
+            return read(Long.BYTES).getLong();
+        }
+
+        private Sources sources() throws IOException {
+            int count = nextInt();
+            String[] paths = new String[count];
+            long[] lengths = new long[count];
+            long[] modified = new long[count];
+            for (int i = 0; i < count; i++) {
+                paths[i] = StandardCharsets.UTF_8.decode(read(nextInt())).toString();
+                lengths[i] = nextLong();
+                modified[i] = nextLong();
+            }
+            return new Sources(paths, lengths, modified);
+        }
+
+        private int[] array() throws IOException {
+            int length = nextInt();
+            int[] values = new int[length];
+            IntBuffer section = map((long) length * Integer.BYTES).asIntBuffer();
+            section.get(values);
+            return values;
+        }
+
+        /**
+         * @return The next array, left in the mapped file rather than copied
+         */
+        private IntBuffer mappedArray() throws IOException {
+            int length = nextInt();
+            return map((long) length * Integer.BYTES).asIntBuffer();
+        }
+
+        private Dictionary dictionary() throws IOException {
+            MappedByteBuffer section = map(nextLong());
+            Dictionary dictionary = new Dictionary();
+            int count = section.getInt();
+            for (int code = 0; code < count; code++) {
+                byte[] value = new byte[section.getInt()];
+                section.get(value);
+                dictionary.encode(new String(value, StandardCharsets.UTF_8));
+            }
+            return dictionary;
+        }
+    }
+
+    /**
+     * The files a store is built from, as they were at one moment: the absolute path, length and last modification
+     * time of each, in order of their paths
+     */
+    public static final class Sources {
+        private final String[] paths;
+        private final long[] lengths;
+        private final long[] modified;
+
+        private Sources(String[] paths, long[] lengths, long[] modified) {
+            this.paths = paths;
+            this.lengths = lengths;
+            this.modified = modified;
+        }
+
+        /**
+         * @param files Files to look at
+         * @return The files as they are now. A missing file has a length and modification time of 0
+         */
+        public static Sources of(Collection<File> files) {
+            File[] sorted = files.stream().map(File::getAbsoluteFile).sorted().toArray(File[]::new);
+            String[] paths = new String[sorted.length];
+            long[] lengths = new long[sorted.length];
+            long[] modified = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                paths[i] = sorted[i].getPath();
+                lengths[i] = sorted[i].length();
+                modified[i] = sorted[i].lastModified();
+            }
+            return new Sources(paths, lengths, modified);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Sources)) {
+                return false;
+            }
+            Sources other = (Sources) o;
+            return Arrays.equals(paths, other.paths) && Arrays.equals(lengths, other.lengths)
+                    && Arrays.equals(modified, other.modified);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(paths) + Arrays.hashCode(lengths)) + Arrays.hashCode(modified);
+        }
+    }
+}
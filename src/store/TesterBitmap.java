@@ -0,0 +1,371 @@
+package store;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable, compressed set of tester indexes. The 32 bit index space is split into chunks of 65536 indexes, keyed
+ * on the upper 16 bits of an index. Each chunk that has at least one member is stored either as a sorted array of the
+ * lower 16 bits (when it is sparse) or as a 65536 bit bitmap (when it is dense), so that a set costs at most about two
+ * bytes per member, and intersections and unions of dense chunks are word-wise operations on longs.
+ */
+public class TesterBitmap {
+    //A chunk with more members than this is stored as a bitmap, since a bitmap is then the smaller of the two
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    public static final TesterBitmap EMPTY = new TesterBitmap(new char[0], new Object[0], new int[0]);
+
+    //Upper 16 bits of the chunks that have members, in increasing order
+    private final char[] keys;
+    //Each chunk is either a char[] of lower 16 bits, in increasing order, or a long[BITMAP_WORDS] bitmap
+    private final Object[] chunks;
+    private final int[] cardinalities;
+    private final int cardinality;
+
+    private TesterBitmap(char[] keys, Object[] chunks, int[] cardinalities) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.cardinalities = cardinalities;
+        int total = 0;
+        for (int c : cardinalities) {
+            total += c;
+        }
+        this.cardinality = total;
+    }
+
+    /**
+     * Creates a bitmap from a sorted run of tester indexes
+     * @param sorted Tester indexes, in increasing order and without duplicates
+     * @param from Position of the first index to add
+     * @param to Position one past the last index to add
+     * @return A bitmap holding sorted[from] up to sorted[to]
+     */
+    public static TesterBitmap of(int[] sorted, int from, int to) {
+        char[] keys = new char[0];
+        Object[] chunks = new Object[0];
+        int[] cardinalities = new int[0];
+        int n = 0;
+        int i = from;
+        while (i < to) {
+            int key = sorted[i] >>> 16;
+            int end = i;
+            while (end < to && sorted[end] >>> 16 == key) {
+                end++;
+            }
+            char[] low = new char[end - i];
+            for (int j = i; j < end; j++) {
+                low[j - i] = (char) sorted[j];
+            }
+            if (n == keys.length) {
+                keys = Arrays.copyOf(keys, n * 2 + 1);
+                chunks = Arrays.copyOf(chunks, n * 2 + 1);
+                cardinalities = Arrays.copyOf(cardinalities, n * 2 + 1);
+            }
+            keys[n] = (char) key;
+            chunks[n] = low.length > MAX_ARRAY_SIZE ? toWords(low, low.length) : low;
+            cardinalities[n] = low.length;
+            n++;
+            i = end;
+        }
+        return new TesterBitmap(Arrays.copyOf(keys, n), Arrays.copyOf(chunks, n), Arrays.copyOf(cardinalities, n));
+    }
+
+    /**
+     * Creates one bitmap for each group of a grouped list of tester indexes
+     * @param sorted Tester indexes, grouped, and in increasing order within each group
+     * @param offsets The members of group g are sorted[offsets[g]] up to sorted[offsets[g + 1]]
+     * @return The bitmap of each group
+     */
+    public static TesterBitmap[] ofGroups(int[] sorted, int[] offsets) {
+        TesterBitmap[] bitmaps = new TesterBitmap[offsets.length - 1];
+        for (int g = 0; g < bitmaps.length; g++) {
+            bitmaps[g] = of(sorted, offsets[g], offsets[g + 1]);
+        }
+        return bitmaps;
+    }
+
+    /**
+     * @return The testers in this set, in increasing order
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int[] n = new int[1];
+        forEach(tester -> result[n[0]++] = tester);
+        return result;
+    }
+
+    /**
+     * @return The number of testers in this set
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * @param tester A tester index
+     * @return True if the tester is in this set, false otherwise
+     */
+    public boolean contains(int tester) {
+        int k = Arrays.binarySearch(keys, (char) (tester >>> 16));
+        if (k < 0) {
+            return false;
+        }
+        Object chunk = chunks[k];
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[(tester & 0xFFFF) >>> 6] & (1L << tester)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, (char) tester) >= 0;
+    }
+
+    /**
+     * Calls the given action on every tester in this set, in increasing order
+     * @param action Action to perform on each tester index
+     */
+    public void forEach(IntConsumer action) {
+        for (int k = 0; k < keys.length; k++) {
+            int high = keys[k] << 16;
+            Object chunk = chunks[k];
+            if (chunk instanceof long[]) {
+                long[] words = (long[]) chunk;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) chunk) {
+                    action.accept(high | low);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param filter Test to apply to each tester in this set
+     * @return A new set holding the testers of this set that pass the test
+     */
+    public TesterBitmap filter(IntPredicate filter) {
+        int[] testers = new int[cardinality];
+        int[] n = new int[1];
+        forEach(tester -> {
+            if (filter.test(tester)) {
+                testers[n[0]++] = tester;
+            }
+        });
+        return of(testers, 0, n[0]);
+    }
+
+    /**
+     * @param other Set to intersect with this one
+     * @return A new set holding the testers that are in both this set and other
+     */
+    public TesterBitmap and(TesterBitmap other) {
+        int capacity = Math.min(keys.length, other.keys.length);
+        char[] resultKeys = new char[capacity];
+        Object[] resultChunks = new Object[capacity];
+        int[] resultCardinalities = new int[capacity];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object chunk = andChunks(chunks[i], other.chunks[j]);
+                int cardinality = chunk instanceof long[] ? cardinality((long[]) chunk) : ((char[]) chunk).length;
+                if (cardinality > 0) {
+                    resultKeys[n] = keys[i];
+                    resultChunks[n] = chunk instanceof long[] ? compress((long[]) chunk, cardinality) : chunk;
+                    resultCardinalities[n] = cardinality;
+                    n++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new TesterBitmap(Arrays.copyOf(resultKeys, n), Arrays.copyOf(resultChunks, n),
+                Arrays.copyOf(resultCardinalities, n));
+    }
+
+    /**
+     * Unions any number of sets in one pass. Chunks that appear in only one of the sets are shared with the result
+     * rather than copied
+     * @param bitmaps Sets to union
+     * @return A new set holding every tester that is in at least one of the given sets
+     */
+    public static TesterBitmap or(List<TesterBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return EMPTY;
+        }
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0);
+        }
+        //Every chunk key present in any of the bitmaps, in increasing order
+        char[] allKeys = bitmaps.stream().map(b -> b.keys).reduce(new char[0], TesterBitmap::mergeKeys);
+        char[] resultKeys = new char[allKeys.length];
+        Object[] resultChunks = new Object[allKeys.length];
+        int[] resultCardinalities = new int[allKeys.length];
+        int[] positions = new int[bitmaps.size()];
+        for (int k = 0; k < allKeys.length; k++) {
+            long[] words = null;
+            Object single = null;
+            int singleCardinality = 0;
+            for (int b = 0; b < bitmaps.size(); b++) {
+                TesterBitmap bitmap = bitmaps.get(b);
+                int p = positions[b];
+                if (p == bitmap.keys.length || bitmap.keys[p] != allKeys[k]) {
+                    continue;
+                }
+                positions[b]++;
+                if (single == null && words == null) {
+                    single = bitmap.chunks[p];
+                    singleCardinality = bitmap.cardinalities[p];
+                } else {
+                    if (words == null) {
+                        words = toWords(single, singleCardinality);
+                    }
+                    orInto(words, bitmap.chunks[p]);
+                }
+            }
+            resultKeys[k] = allKeys[k];
+            if (words == null) {
+                resultChunks[k] = single;
+                resultCardinalities[k] = singleCardinality;
+            } else {
+                int cardinality = cardinality(words);
+                resultChunks[k] = compress(words, cardinality);
+                resultCardinalities[k] = cardinality;
+            }
+        }
+        return new TesterBitmap(resultKeys, resultChunks, resultCardinalities);
+    }
+
+    /**
+     * @return Estimated number of bytes this set occupies on the heap
+     */
+    public long sizeInBytes() {
+        long size = 16L + keys.length * 2L + cardinalities.length * 4L + chunks.length * 4L;
+        for (Object chunk : chunks) {
+            size += chunk instanceof long[] ? 16L + BITMAP_WORDS * 8L : 16L + ((char[]) chunk).length * 2L;
+        }
+        return size;
+    }
+
+    /**
+     * @return A new array holding the chunk as a bitmap, whichever form it is stored in
+     */
+    private static long[] toWords(Object chunk, int cardinality) {
+        if (chunk instanceof long[]) {
+            return ((long[]) chunk).clone();
+        }
+        return toWords((char[]) chunk, cardinality);
+    }
+
+    private static long[] toWords(char[] low, int cardinality) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            words[low[i] >>> 6] |= 1L << low[i];
+        }
+        return words;
+    }
+
+    /**
+     * Intersects two chunks. Two bitmaps are intersected word by word; otherwise the members of the array chunk are
+     * probed against the other chunk
+     * @return A new chunk, either a bitmap or an array, holding the members of both chunks
+     */
+    private static Object andChunks(Object a, Object b) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] words = ((long[]) a).clone();
+            long[] other = (long[]) b;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= other[w];
+            }
+            return words;
+        }
+        char[] probes = (char[]) (a instanceof char[] ? a : b);
+        Object other = a instanceof char[] ? b : a;
+        char[] result = new char[probes.length];
+        int n = 0;
+        for (char low : probes) {
+            boolean member = other instanceof long[]
+                    ? (((long[]) other)[low >>> 6] & (1L << low)) != 0
+                    : Arrays.binarySearch((char[]) other, low) >= 0;
+            if (member) {
+                result[n++] = low;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private static void orInto(long[] words, Object chunk) {
+        if (chunk instanceof long[]) {
+            long[] other = (long[]) chunk;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= other[w];
+            }
+        } else {
+            for (char low : (char[]) chunk) {
+                words[low >>> 6] |= 1L << low;
+            }
+        }
+    }
+
+    private static int cardinality(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return The chunk in whichever of its two forms is smaller
+     */
+    private static Object compress(long[] words, int cardinality) {
+        if (cardinality > MAX_ARRAY_SIZE) {
+            return words;
+        }
+        char[] low = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                low[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return low;
+    }
+
+    private static char[] mergeKeys(char[] a, char[] b) {
+        char[] result = new char[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            char next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[n++] = next;
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
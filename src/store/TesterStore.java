@@ -0,0 +1,575 @@
+package store;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Dictionary-encoded, read-only storage for testers, devices and bugs. Every tester is stored exactly once, and is
+ * addressed by a dense tester index (its position in the arrays below) rather than by object. Countries, devices and
+ * names are replaced by their dictionary codes. Tester indexes are grouped by country: the testers of each country
+ * have consecutive indexes.
+ *
+ * The relationship between testers and devices is stored as a list of (tester, device) pairs, grouped by device and
+ * sorted by tester index within each device. Each pair carries the number of bugs the tester identified on the device,
+ * and, unless the store was built without them, the ids of those bugs. Since tester indexes are grouped by country,
+ * the pairs of each device are grouped by country too: the pairs of one (device, country) cell are consecutive, and
+ * so a search on both countries and devices can sum the bug counts of just the matching cells. Each country and each
+ * device also has a compressed bitmap of its testers, so that searches on several values are unions and intersections
+ * of bitmaps.
+ *
+ * A store never changes once built. New rows are applied with {@link #apply(StoreDelta)}, which returns a new version
+ * of the store that shares as much as it can with this one, so a reader holding on to a version keeps seeing a
+ * consistent view no matter what is applied afterwards.
+ *
+ * The bug ids, which make up most of a large store, are kept in a {@link BugStorage}, on or off the heap, and may be
+ * compressed (see {@link #compressBugIds()}). A store without bug ids may also leave its pair bug counts in bugs.csv,
+ * to be read a device at a time when first searched for (see {@link LazyBugCounts}).
+ *
+ * Instances are created by {@link TesterStoreBuilder}, or read back from a file by {@link StoreSnapshot}. The fields
+ * are package-private so that StoreSnapshot can write them out as they are.
+ */
+public class TesterStore {
+    //Once the bug log holds more than this fraction of all bugs, applying a delta lays every bug out again
+    private static final int MAX_LOG_FRACTION = 8;
+    private static final int MIN_LOG_COMPACTION_SIZE = 1 << 16;
+
+    final Dictionary countries;
+    final Dictionary devices;
+    final Dictionary names;
+
+    //Per tester index: the tester's id in testers.csv, the codes of their names and country, and their total bug count
+    final int[] testerIds;
+    final int[] firstNames;
+    final int[] lastNames;
+    final int[] testerCountry;
+    final int[] testerBugCount;
+    //Per tester index: the tester's row in testers.csv, counting the rows of the testers a shard or partition leaves
+    //out. Along with the country codes, which every store of a data set assigns alike, this orders testers the same
+    //way in every store
+    final int[] testerRows;
+    //Mapping from a tester's id in testers.csv to its tester index
+    private final IntIntMap testerIndex;
+    //Mapping from a device's id in devices.csv to its device code
+    final IntIntMap deviceIndex;
+
+    //The testers of country c are the tester indexes countryOffsets[c] up to countryOffsets[c + 1]
+    final int[] countryOffsets;
+    //Posting lists: the set of testers based in each country, and the set of testers who test each device
+    final TesterBitmap[] countryBitmaps;
+    final TesterBitmap[] deviceBitmaps;
+
+    //The pairs of device d are pairs deviceOffsets[d] up to deviceOffsets[d + 1]
+    final int[] deviceOffsets;
+    final int[] pairTester;
+    final int[] pairBugCount;
+    //The bugs of pair p are rows pairBugOffsets[p] up to pairBugOffsets[p + 1] of bugs, followed by the entries of
+    //the bug log that belong to p. The log holds bugs applied since the bugs were last laid out by pair
+    final int[] pairBugOffsets;
+    final BugStorage bugs;
+    final int[] logBugIds;
+    final int[] logBugPairs;
+    //False if only bug counts were kept, in which case pairBugOffsets is all zeros and there are no bug ids at all
+    final boolean bugIdsKept;
+    //Bug counts of the pairs of each device that are read from bugs.csv when first needed, or null if pairBugCount
+    //holds every count. If set, pairBugCount only holds the bugs of the deltas applied since loading
+    final LazyBugCounts lazyBugs;
+
+    //Incremented every time a delta is applied
+    private final long version;
+
+    /**
+     * Constructor for this class. Builds the tester index and the bitmaps from the given arrays
+     * @param countryOffsets The testers of country c are countryTesters[countryOffsets[c]] up to
+     *                       countryTesters[countryOffsets[c + 1]], in increasing order
+     * @param countryTesters Tester indexes grouped by country, which must be every tester index in increasing order
+     */
+    TesterStore(Dictionary countries, Dictionary devices, Dictionary names, int[] testerIds, int[] firstNames,
+                int[] lastNames, int[] testerCountry, int[] testerBugCount, int[] testerRows, IntIntMap deviceIndex,
+                int[] countryOffsets, int[] countryTesters, int[] deviceOffsets, int[] pairTester,
+                int[] pairBugCount, int[] pairBugOffsets, BugStorage bugs, boolean bugIdsKept,
+                LazyBugCounts lazyBugs, long version) {
+        this.countries = countries;
+        this.devices = devices;
+        this.names = names;
+        this.testerIds = testerIds;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.testerCountry = testerCountry;
+        this.testerBugCount = testerBugCount;
+        this.testerRows = testerRows;
+        this.deviceIndex = deviceIndex;
+        this.countryOffsets = countryOffsets;
+        this.deviceOffsets = deviceOffsets;
+        this.pairTester = pairTester;
+        this.pairBugCount = pairBugCount;
+        this.pairBugOffsets = pairBugOffsets;
+        this.bugs = bugs;
+        this.logBugIds = new int[0];
+        this.logBugPairs = new int[0];
+        this.bugIdsKept = bugIdsKept;
+        this.lazyBugs = lazyBugs;
+        this.version = version;
+        testerIndex = new IntIntMap(testerIds.length);
+        for (int tester = 0; tester < testerIds.length; tester++) {
+            testerIndex.put(testerIds[tester], tester);
+        }
+        countryBitmaps = TesterBitmap.ofGroups(countryTesters, countryOffsets);
+        deviceBitmaps = TesterBitmap.ofGroups(pairTester, deviceOffsets);
+    }
+
+    /**
+     * Creates a store that differs from another only in how its bug ids are stored
+     */
+    private TesterStore(TesterStore base, BugStorage bugs) {
+        this.countries = base.countries;
+        this.devices = base.devices;
+        this.names = base.names;
+        this.testerIds = base.testerIds;
+        this.firstNames = base.firstNames;
+        this.lastNames = base.lastNames;
+        this.testerCountry = base.testerCountry;
+        this.testerRows = base.testerRows;
+        this.testerIndex = base.testerIndex;
+        this.deviceIndex = base.deviceIndex;
+        this.countryOffsets = base.countryOffsets;
+        this.countryBitmaps = base.countryBitmaps;
+        this.deviceBitmaps = base.deviceBitmaps;
+        this.deviceOffsets = base.deviceOffsets;
+        this.pairTester = base.pairTester;
+        this.pairBugOffsets = base.pairBugOffsets;
+        this.bugs = bugs;
+        this.testerBugCount = base.testerBugCount;
+        this.pairBugCount = base.pairBugCount;
+        this.logBugIds = base.logBugIds;
+        this.logBugPairs = base.logBugPairs;
+        this.bugIdsKept = base.bugIdsKept;
+        this.lazyBugs = base.lazyBugs;
+        this.version = base.version;
+    }
+
+    /**
+     * Creates a new version of a store that differs from it only in its bug counts and bug log
+     */
+    private TesterStore(TesterStore base, int[] testerBugCount, int[] pairBugCount, int[] logBugIds,
+                        int[] logBugPairs) {
+        this.countries = base.countries;
+        this.devices = base.devices;
+        this.names = base.names;
+        this.testerIds = base.testerIds;
+        this.firstNames = base.firstNames;
+        this.lastNames = base.lastNames;
+        this.testerCountry = base.testerCountry;
+        this.testerRows = base.testerRows;
+        this.testerIndex = base.testerIndex;
+        this.deviceIndex = base.deviceIndex;
+        this.countryOffsets = base.countryOffsets;
+        this.countryBitmaps = base.countryBitmaps;
+        this.deviceBitmaps = base.deviceBitmaps;
+        this.deviceOffsets = base.deviceOffsets;
+        this.pairTester = base.pairTester;
+        this.pairBugOffsets = base.pairBugOffsets;
+        this.bugs = base.bugs;
+        this.testerBugCount = testerBugCount;
+        this.pairBugCount = pairBugCount;
+        this.logBugIds = logBugIds;
+        this.logBugPairs = logBugPairs;
+        this.bugIdsKept = base.bugIdsKept;
+        this.lazyBugs = base.lazyBugs;
+        this.version = base.version + 1;
+    }
+
+    /**
+     * Applies new rows of bugs.csv and tester_device.csv. When the delta only adds bugs to existing (tester, device)
+     * pairs, the new version shares everything with this one but its bug counts, and the new bugs are appended to the
+     * bug log (if bug ids are kept at all). When the delta adds new pairs, or the bug log has grown too long, the
+     * store is rebuilt in memory, which reads the bug counts of every device if they are read lazily. Either way this
+     * store is left untouched
+     * @param delta Rows to apply. Rows that reference an unknown tester or device are ignored
+     * @return A new version of this store, with the delta applied
+     */
+    public TesterStore apply(StoreDelta delta) {
+        boolean newPairs = false;
+        for (int i = 0; i < delta.testerDeviceCount() && !newPairs; i++) {
+            int tester = testerIndex.get(delta.testerDeviceTester(i));
+            int device = deviceIndex.get(delta.testerDeviceDevice(i));
+            newPairs = tester >= 0 && device >= 0 && pair(tester, device) < 0;
+        }
+        long logSize = bugIdsKept ? (long) logBugIds.length + delta.bugCount() : 0;
+        if (newPairs || logSize > Math.max(MIN_LOG_COMPACTION_SIZE, bugs.size() / MAX_LOG_FRACTION)) {
+            TesterStoreBuilder builder = new TesterStoreBuilder(this);
+            delta.addTo(builder);
+            return builder.build(version + 1);
+        }
+        int[] newTesterBugCount = testerBugCount.clone();
+        int[] newPairBugCount = pairBugCount.clone();
+        int[] newLogBugIds = Arrays.copyOf(logBugIds, (int) logSize);
+        int[] newLogBugPairs = Arrays.copyOf(logBugPairs, (int) logSize);
+        int n = logBugIds.length;
+        for (int i = 0; i < delta.bugCount(); i++) {
+            int tester = testerIndex.get(delta.bugTester(i));
+            if (tester < 0) {
+                continue;
+            }
+            newTesterBugCount[tester]++;
+            int device = deviceIndex.get(delta.bugDevice(i));
+            int pair = device < 0 ? -1 : pair(tester, device);
+            if (pair >= 0) {
+                newPairBugCount[pair]++;
+                if (bugIdsKept) {
+                    newLogBugIds[n] = delta.bugId(i);
+                    newLogBugPairs[n] = pair;
+                    n++;
+                }
+            }
+        }
+        return new TesterStore(this, newTesterBugCount, newPairBugCount, Arrays.copyOf(newLogBugIds, n),
+                Arrays.copyOf(newLogBugPairs, n));
+    }
+
+    /**
+     * @return A version of this store whose bug log is empty, with every bug laid out by pair
+     */
+    public TesterStore compact() {
+        return logBugIds.length == 0 ? this : new TesterStoreBuilder(this).build(version);
+    }
+
+    /**
+     * Compresses the bug ids: the ids of each pair are sorted, and stored as varint-encoded differences (see
+     * {@link CompressedBugStorage}). Stores rebuilt from the new one, when deltas are applied, compress their bug ids
+     * too. The bug counts stay as they are, so queries cost the same; listing the ids of a pair decodes them
+     * @return A store whose bug ids are compressed, or this store if it keeps no bug ids or already compresses them
+     */
+    public TesterStore compressBugIds() {
+        if (!bugIdsKept || bugs.isCompressed()) {
+            return this;
+        }
+        return new TesterStore(this, CompressedBugStorage.compress(bugs, pairBugOffsets));
+    }
+
+    /**
+     * @return The number of deltas applied to this store since it was loaded
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return An estimate of the number of bytes of heap taken up by the indexes of this store: the tester and device
+     * indexes, the bitmaps, and the offsets into the pairs and bugs
+     */
+    public long indexSizeInBytes() {
+        long bytes = testerIndex.sizeInBytes() + deviceIndex.sizeInBytes() + arrayBytes(deviceOffsets)
+                + arrayBytes(pairBugOffsets) + (lazyBugs == null ? 0 : lazyBugs.indexSizeInBytes());
+        for (TesterBitmap bitmap : countryBitmaps) {
+            bytes += bitmap.sizeInBytes();
+        }
+        for (TesterBitmap bitmap : deviceBitmaps) {
+            bytes += bitmap.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return An estimate of the number of bytes of heap taken up by the data of this store: the dictionaries, the
+     * per-tester arrays, the pairs and the bug ids, unless those are kept off the heap, and the bug counts read from
+     * bugs.csv so far
+     */
+    public long dataSizeInBytes() {
+        return countries.sizeInBytes() + devices.sizeInBytes() + names.sizeInBytes() + arrayBytes(testerIds)
+                + arrayBytes(firstNames) + arrayBytes(lastNames) + arrayBytes(testerCountry) + arrayBytes(testerRows)
+                + arrayBytes(testerBugCount) + arrayBytes(pairTester) + arrayBytes(pairBugCount)
+                + (bugs.isOffHeap() ? 0 : bugs.sizeInBytes()) + arrayBytes(logBugIds) + arrayBytes(logBugPairs)
+                + (lazyBugs == null ? 0 : lazyBugs.cacheSizeInBytes());
+    }
+
+    /**
+     * @return The number of bytes taken up by the bug ids kept off the heap, or 0 if they are on the heap
+     */
+    public long offHeapSizeInBytes() {
+        return bugs.isOffHeap() ? bugs.sizeInBytes() : 0;
+    }
+
+    private static long arrayBytes(int[] array) {
+        return 16L + array.length * 4L;
+    }
+
+    public Dictionary countries() {
+        return countries;
+    }
+
+    public Dictionary devices() {
+        return devices;
+    }
+
+    public int testerCount() {
+        return testerIds.length;
+    }
+
+    public int pairCount() {
+        return pairTester.length;
+    }
+
+    /**
+     * @return The number of bugs identified on a device their tester is mapped to. If the bug counts are read lazily,
+     * the bugs of the loaded part of bugs.csv are counted whether their tester is mapped to their device or not, as
+     * only the rows of the devices that have been searched for have been looked at
+     */
+    public int bugCount() {
+        if (bugIdsKept) {
+            return bugs.size() + logBugIds.length;
+        }
+        int bugs = lazyBugs == null ? 0 : lazyBugs.rows();
+        for (int count : pairBugCount) {
+            bugs += count;
+        }
+        return bugs;
+    }
+
+    /**
+     * @return False if this store only holds bug counts, and not the ids of the bugs
+     */
+    public boolean keepsBugIds() {
+        return bugIdsKept;
+    }
+
+    /**
+     * @param id A tester's id as found in testers.csv
+     * @return The tester index of that tester, or -1 if there is no such tester
+     */
+    public int testerIndex(int id) {
+        return testerIndex.get(id);
+    }
+
+    public int testerId(int tester) {
+        return testerIds[tester];
+    }
+
+    public String firstName(int tester) {
+        return names.decode(firstNames[tester]);
+    }
+
+    public String lastName(int tester) {
+        return names.decode(lastNames[tester]);
+    }
+
+    public int testerCountry(int tester) {
+        return testerCountry[tester];
+    }
+
+    /**
+     * @param tester A tester index
+     * @return The number of bugs that tester has identified, on any device
+     */
+    public int testerBugCount(int tester) {
+        return testerBugCount[tester];
+    }
+
+    /**
+     * @param tester A tester index
+     * @return The tester's place in the order of a store holding every tester of testers.csv: by country, countries in
+     * the order they first appear in the file, and then by row. Testers of one store are in this order by tester index,
+     * and unlike tester indexes, ranks can be compared between the partitions or shards of a data set
+     */
+    public long testerRank(int tester) {
+        return (long) testerCountry[tester] << 32 | testerRows[tester];
+    }
+
+    /**
+     * @param country A country code
+     * @return The set of testers based in that country
+     */
+    public TesterBitmap countryBitmap(int country) {
+        return countryBitmaps[country];
+    }
+
+    /**
+     * @param country A country code
+     * @return The lowest tester index of the testers based in that country. Those testers' indexes are consecutive
+     */
+    public int countryStart(int country) {
+        return countryOffsets[country];
+    }
+
+    public int countryEnd(int country) {
+        return countryOffsets[country + 1];
+    }
+
+    /**
+     * @param device A device code
+     * @return The set of testers who test that device
+     */
+    public TesterBitmap deviceBitmap(int device) {
+        return deviceBitmaps[device];
+    }
+
+    public int deviceStart(int device) {
+        return deviceOffsets[device];
+    }
+
+    public int deviceEnd(int device) {
+        return deviceOffsets[device + 1];
+    }
+
+    public int pairTester(int pair) {
+        return pairTester[pair];
+    }
+
+    /**
+     * @param pair A (tester, device) pair
+     * @return The number of bugs the pair's tester has identified on the pair's device
+     * @throws java.io.UncheckedIOException Thrown when the bug counts are read lazily and bugs.csv cannot be read
+     */
+    public int pairBugCount(int pair) {
+        if (lazyBugs == null) {
+            return pairBugCount[pair];
+        }
+        //Find the pair's device: the last device whose pairs start at or before the pair
+        int low = 0;
+        int high = deviceOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (deviceOffsets[mid] <= pair) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return pairBugCounts(low).applyAsInt(pair);
+    }
+
+    /**
+     * Looks up the bug counts of every pair of a device at once. If the bug counts are read lazily, this reads the
+     * device's rows of bugs.csv unless they are cached, so a search should call this once per device rather than
+     * call pairBugCount once per pair
+     * @param device A device code
+     * @return A function from each pair of the device to its bug count
+     * @throws java.io.UncheckedIOException Thrown when the bug counts are read lazily and bugs.csv cannot be read
+     */
+    public IntUnaryOperator pairBugCounts(int device) {
+        if (lazyBugs == null) {
+            return pair -> pairBugCount[pair];
+        }
+        int[] loaded = lazyBugs.counts(this, device);
+        int start = deviceOffsets[device];
+        return pair -> loaded[pair - start] + pairBugCount[pair];
+    }
+
+    /**
+     * @return The bug count of every pair, reading the counts of every device if they are read lazily
+     */
+    int[] allPairBugCounts() {
+        if (lazyBugs == null) {
+            return pairBugCount;
+        }
+        int[] counts = new int[pairBugCount.length];
+        for (int device = 0; device < deviceOffsets.length - 1; device++) {
+            IntUnaryOperator deviceCounts = pairBugCounts(device);
+            for (int pair = deviceOffsets[device]; pair < deviceOffsets[device + 1]; pair++) {
+                counts[pair] = deviceCounts.applyAsInt(pair);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return True if the bug counts of the pairs are read from bugs.csv a device at a time, when first needed
+     */
+    public boolean readsBugCountsLazily() {
+        return lazyBugs != null;
+    }
+
+    /**
+     * @return The number of times the bug counts of a device were read from bugs.csv, or 0 if they are not read lazily
+     */
+    public long lazyDeviceLoads() {
+        return lazyBugs == null ? 0 : lazyBugs.getLoads();
+    }
+
+    /**
+     * @param pair A (tester, device) pair
+     * @return The ids of the bugs the pair's tester has identified on the pair's device
+     * @throws IllegalStateException Thrown when this store does not keep bug ids
+     */
+    public int[] bugIds(int pair) {
+        if (!bugIdsKept) {
+            throw new IllegalStateException("This store only keeps bug counts, not bug ids");
+        }
+        int[] result = new int[pairBugCount[pair]];
+        int n = pairBugOffsets[pair + 1] - pairBugOffsets[pair];
+        bugs.get(pairBugOffsets[pair], result, 0, n);
+        for (int i = 0; i < logBugPairs.length && n < result.length; i++) {
+            if (logBugPairs[i] == pair) {
+                result[n++] = logBugIds[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Iterates over the ids of a pair's bugs without copying them into an array, decoding them as it goes if they are
+     * compressed
+     * @param pair A (tester, device) pair
+     * @return An iterator over the same ids as bugIds(pair), in the same order
+     * @throws IllegalStateException Thrown when this store does not keep bug ids
+     */
+    public PrimitiveIterator.OfInt bugIdIterator(int pair) {
+        if (!bugIdsKept) {
+            throw new IllegalStateException("This store only keeps bug counts, not bug ids");
+        }
+        PrimitiveIterator.OfInt laidOut = bugs.iterator(pairBugOffsets[pair], pairBugOffsets[pair + 1]);
+        return new PrimitiveIterator.OfInt() {
+            //Next entry of the bug log to look at, once the bugs laid out by pair are exhausted
+            private int log = nextLogEntry(0);
+
+            @Override
+            public boolean hasNext() {
+                return laidOut.hasNext() || log < logBugPairs.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (laidOut.hasNext()) {
+                    return laidOut.nextInt();
+                }
+                if (log >= logBugPairs.length) {
+                    throw new NoSuchElementException();
+                }
+                int bugId = logBugIds[log];
+                log = nextLogEntry(log + 1);
+                return bugId;
+            }
+
+            private int nextLogEntry(int from) {
+                while (from < logBugPairs.length && logBugPairs[from] != pair) {
+                    from++;
+                }
+                return from;
+            }
+        };
+    }
+
+    /**
+     * Finds a pair by binary search among the pairs of its device, which are sorted by tester
+     * @param tester A tester index
+     * @param device A device code
+     * @return The pair of that tester and device, or -1 if the tester does not test the device
+     */
+    public int pair(int tester, int device) {
+        int pair = Arrays.binarySearch(pairTester, deviceOffsets[device], deviceOffsets[device + 1], tester);
+        return pair < 0 ? -1 : pair;
+    }
+
+    /**
+     * Finds where a range of testers starts among the pairs of a device. The pairs of a (device, country) cell are the
+     * pairs from pairFrom(device, countryStart(country)) up to pairFrom(device, countryEnd(country))
+     * @param device A device code
+     * @param tester A tester index
+     * @return The first pair of the device whose tester index is at least tester, or deviceEnd(device) if none is
+     */
+    public int pairFrom(int device, int tester) {
+        int pair = Arrays.binarySearch(pairTester, deviceOffsets[device], deviceOffsets[device + 1], tester);
+        return pair < 0 ? -pair - 1 : pair;
+    }
+}
@@ -0,0 +1,471 @@
+package store;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Accumulates the rows of the four input files and turns them into a {@link TesterStore}. Rows may be added in any
+ * order within a file, but testers and devices must be added before the tester/device mappings and bugs that
+ * reference them. Rows that reference an unknown tester or device are ignored.
+ *
+ * A builder is not thread safe, with two exceptions: testers and devices touch disjoint state, so testers.csv and
+ * devices.csv may be added from two threads at once; and once every tester, device and tester/device mapping has
+ * been added, bugs may be parsed in parallel into {@link BugChunk}s, which are then merged one at a time. A builder
+ * must not be used once it has built its store.
+ *
+ * A builder may be told not to keep bug ids, in which case it only counts bugs, per tester and per (tester, device)
+ * pair. The store it builds answers every query the same way, in a fraction of the memory, but cannot list the ids of
+ * a pair's bugs. A builder may also be told to keep the bug ids of the store off the heap (see {@link BugStorage}), in
+ * which case it also collects the bugs off the heap as they are added, so that the heap does not grow with the number
+ * of bugs while loading either.
+ *
+ * Finally, a builder that does not keep bug ids may be told to leave the pair bug counts in bugs.csv. The rows of
+ * bugs.csv are then added with {@link #indexBug}, which only counts each bug towards its tester's total and notes where
+ * in the file the row is, and the store reads the rows of a device when the device is first searched for.
+ */
+public class TesterStoreBuilder {
+    private final boolean keepBugIds;
+    private final boolean offHeap;
+    //True if the store compresses its bug ids, which is only ever the case when rebuilding a compressed store
+    private final boolean compressBugIds;
+    //Testers to keep, by id. The rows of other testers are ignored, as if the testers were unknown
+    private final IntPredicate testerFilter;
+
+    private final Dictionary countries = new Dictionary();
+    private final Dictionary devices = new Dictionary();
+    private final Dictionary names = new Dictionary();
+
+    private final IntList testerIds = new HeapIntList();
+    private final IntList firstNames = new HeapIntList();
+    private final IntList lastNames = new HeapIntList();
+    private final IntList testerCountry = new HeapIntList();
+    private final IntList testerBugCount = new HeapIntList();
+    private final IntList testerRows = new HeapIntList();
+    private final IntIntMap testerIndex = new IntIntMap();
+    //Number of rows of testers.csv added so far, including those of testers left out
+    private int testerRowCount;
+
+    //Mapping from a device's id in devices.csv to the code of its (lowercased) name
+    private final IntIntMap deviceIndex = new IntIntMap();
+
+    //Pairs in the order they were added, their bug counts, and a mapping from (tester index, device code) to the pair
+    private final IntList pairTester = new HeapIntList();
+    private final IntList pairDevice = new HeapIntList();
+    private final IntList pairBugCount = new HeapIntList();
+    private final LongIntMap pairIndex = new LongIntMap();
+
+    //Bugs in the order they were added, along with the pair each bug belongs to. Kept off the heap if the store keeps
+    //its bug ids off the heap
+    private final IntList bugIds;
+    private final IntList bugPair;
+    //Where in bugs.csv the rows of each device are, if the pair bug counts are read lazily, or null otherwise
+    private LazyBugCounts.Index lazyBugs;
+
+    public TesterStoreBuilder() {
+        this(true, false);
+    }
+
+    /**
+     * Constructor for this class
+     * @param keepBugIds If false, only the number of bugs of each tester and pair is kept, not the bugs' ids
+     * @param offHeap If true, the store keeps its bug ids off the heap
+     */
+    public TesterStoreBuilder(boolean keepBugIds, boolean offHeap) {
+        this(keepBugIds, offHeap, testerId -> true);
+    }
+
+    /**
+     * Constructor for this class
+     * @param keepBugIds If false, only the number of bugs of each tester and pair is kept, not the bugs' ids
+     * @param offHeap If true, the store keeps its bug ids off the heap
+     * @param testerFilter Test of whether to keep a tester, given the tester's id. The rows of other testers are
+     *                     ignored, so that the store holds only a shard of the data
+     */
+    public TesterStoreBuilder(boolean keepBugIds, boolean offHeap, IntPredicate testerFilter) {
+        this.keepBugIds = keepBugIds;
+        this.offHeap = offHeap;
+        this.compressBugIds = false;
+        this.testerFilter = testerFilter;
+        this.bugIds = newBugList();
+        this.bugPair = newBugList();
+    }
+
+    /**
+     * Creates a builder that already holds every row of an existing store, so that more rows can be added to it
+     * without reading the files again
+     * @param base Store whose rows to start from
+     */
+    TesterStoreBuilder(TesterStore base) {
+        this(base, testerId -> true);
+    }
+
+    /**
+     * Creates a builder that already holds the rows of an existing store that belong to some of its testers
+     * @param base Store whose rows to start from
+     * @param testerFilter Test of whether to keep a tester, given the tester's id. The rows of other testers are left
+     *                     out
+     */
+    TesterStoreBuilder(TesterStore base, IntPredicate testerFilter) {
+        this.keepBugIds = base.bugIdsKept;
+        this.offHeap = base.bugs.isOffHeap();
+        this.compressBugIds = base.bugs.isCompressed();
+        this.testerFilter = testerFilter;
+        this.bugIds = newBugList();
+        this.bugPair = newBugList();
+        //Every country keeps its code, even one none of the testers kept is based in, so that ranks stay comparable
+        for (int code = 0; code < base.countries.size(); code++) {
+            countries.encode(base.countries.decode(code));
+        }
+        for (int code = 0; code < base.devices.size(); code++) {
+            devices.encode(base.devices.decode(code));
+        }
+        base.deviceIndex.forEach(deviceIndex::put);
+        int[] newTester = new int[base.testerCount()];
+        for (int tester = 0; tester < base.testerCount(); tester++) {
+            if (!testerFilter.test(base.testerIds[tester])) {
+                newTester[tester] = -1;
+                continue;
+            }
+            newTester[tester] = testerIds.size();
+            addTester(base.testerIds[tester], base.firstName(tester), base.lastName(tester),
+                    base.countries.decode(base.testerCountry[tester]));
+            //The total includes bugs on devices the tester is not mapped to, which are not stored individually
+            testerBugCount.set(newTester[tester], base.testerBugCount[tester]);
+            testerRows.set(newTester[tester], base.testerRows[tester]);
+        }
+        //Pairs are added in the store's order, so that when no tester is left out each pair keeps its number
+        int[] newPair = new int[base.pairCount()];
+        for (int device = 0; device < base.devices.size(); device++) {
+            IntUnaryOperator baseBugCounts = base.pairBugCounts(device);
+            for (int pair = base.deviceStart(device); pair < base.deviceEnd(device); pair++) {
+                int tester = newTester[base.pairTester[pair]];
+                if (tester < 0) {
+                    newPair[pair] = -1;
+                    continue;
+                }
+                newPair[pair] = pairTester.size();
+                pairIndex.put(LongIntMap.key(tester, device), newPair[pair]);
+                pairTester.add(tester);
+                pairDevice.add(device);
+                pairBugCount.add(baseBugCounts.applyAsInt(pair));
+                PrimitiveIterator.OfInt ids = base.bugs.iterator(base.pairBugOffsets[pair],
+                        base.pairBugOffsets[pair + 1]);
+                while (ids.hasNext()) {
+                    bugIds.add(ids.nextInt());
+                    bugPair.add(newPair[pair]);
+                }
+            }
+        }
+        for (int i = 0; i < base.logBugIds.length; i++) {
+            if (newPair[base.logBugPairs[i]] >= 0) {
+                bugIds.add(base.logBugIds[i]);
+                bugPair.add(newPair[base.logBugPairs[i]]);
+            }
+        }
+    }
+
+    /**
+     * Adds a row of testers.csv
+     * @param id The tester's id
+     * @param firstName The tester's first name
+     * @param lastName The tester's last name
+     * @param country The tester's country. Countries are matched case insensitively
+     */
+    public void addTester(int id, String firstName, String lastName, String country) {
+        //The country is encoded even if the tester is left out, so that every shard of the data numbers the countries
+        //alike, in the order they first appear in testers.csv
+        int countryCode = countries.encode(country.toLowerCase());
+        int row = testerRowCount++;
+        if (!testerFilter.test(id)) {
+            return;
+        }
+        testerIndex.put(id, testerIds.size());
+        testerIds.add(id);
+        firstNames.add(names.encode(firstName));
+        lastNames.add(names.encode(lastName));
+        testerCountry.add(countryCode);
+        testerBugCount.add(0);
+        testerRows.add(row);
+    }
+
+    /**
+     * Adds a row of devices.csv
+     * @param id The device's id
+     * @param name The device's name. Devices are matched case insensitively
+     */
+    public void addDevice(int id, String name) {
+        deviceIndex.put(id, devices.encode(name.toLowerCase()));
+    }
+
+    /**
+     * Adds a row of tester_device.csv
+     * @param testerId The id of the tester
+     * @param deviceId The id of a device the tester tests
+     */
+    public void addTesterDevice(int testerId, int deviceId) {
+        int tester = testerIndex.get(testerId);
+        int device = deviceIndex.get(deviceId);
+        if (tester < 0 || device < 0) {
+            return;
+        }
+        long key = LongIntMap.key(tester, device);
+        if (pairIndex.get(key) < 0) {
+            pairIndex.put(key, pairTester.size());
+            pairTester.add(tester);
+            pairDevice.add(device);
+            pairBugCount.add(0);
+        }
+    }
+
+    /**
+     * Adds a row of bugs.csv. A bug always counts towards its tester's total. It is only attributed to its device
+     * if tester_device.csv says the tester tests that device
+     * @param bugId The id of the bug
+     * @param deviceId The id of the device on which the bug was identified
+     * @param testerId The id of the tester who identified the bug
+     */
+    public void addBug(int bugId, int deviceId, int testerId) {
+        int tester = testerIndex.get(testerId);
+        if (tester < 0) {
+            return;
+        }
+        testerBugCount.set(tester, testerBugCount.get(tester) + 1);
+        int pair = pair(tester, deviceId);
+        if (pair >= 0) {
+            pairBugCount.set(pair, pairBugCount.get(pair) + 1);
+            if (keepBugIds) {
+                bugIds.add(bugId);
+                bugPair.add(pair);
+            }
+        }
+    }
+
+    /**
+     * Makes the store read the bug counts of its pairs from bugs.csv, a device at a time, when they are first needed,
+     * rather than count them as the rows are added. The rows of bugs.csv must then be added with indexBug, in file
+     * order, read through the given channel, which the store then keeps open to read the rows of each device
+     * @param file The bugs.csv file
+     * @param channel Open channel of the file. The store closes it once it is no longer used
+     * @param memoryBudget Largest number of bytes of bug counts the store keeps cached
+     * @throws IllegalStateException Thrown when this builder keeps bug ids
+     */
+    public void readBugsLazily(File file, FileChannel channel, long memoryBudget) {
+        if (keepBugIds) {
+            throw new IllegalStateException("Bug counts can only be read lazily by a store that does not keep bug ids");
+        }
+        lazyBugs = new LazyBugCounts.Index(file, channel, memoryBudget);
+    }
+
+    /**
+     * Adds a row of bugs.csv whose bug counts are read lazily. The bug counts towards its tester's total, and the row
+     * is remembered as one of its device's rows, to be counted towards its pair when the device is first searched for
+     * @param deviceId The id of the device on which the bug was identified
+     * @param testerId The id of the tester who identified the bug
+     * @param start File position of the first byte of the row
+     * @param end File position one past the last byte of the row
+     */
+    public void indexBug(int deviceId, int testerId, long start, long end) {
+        int tester = testerIndex.get(testerId);
+        if (tester < 0) {
+            return;
+        }
+        testerBugCount.set(tester, testerBugCount.get(tester) + 1);
+        int device = deviceIndex.get(deviceId);
+        if (device >= 0) {
+            lazyBugs.add(device, start, end);
+        }
+    }
+
+    /**
+     * Creates an empty chunk of bugs, to be filled by another thread. Every tester, device and tester/device mapping
+     * must have been added before calling this method
+     * @return A new chunk
+     */
+    public BugChunk newBugChunk() {
+        return new BugChunk();
+    }
+
+    /**
+     * Adds every bug of a chunk, as if each had been added with addBug
+     * @param chunk Chunk of bugs to add
+     */
+    public void addBugs(BugChunk chunk) {
+        for (int tester = 0; tester < chunk.testerBugCount.length; tester++) {
+            testerBugCount.set(tester, testerBugCount.get(tester) + chunk.testerBugCount[tester]);
+        }
+        for (int pair = 0; pair < chunk.pairBugCount.length; pair++) {
+            pairBugCount.set(pair, pairBugCount.get(pair) + chunk.pairBugCount[pair]);
+        }
+        for (int i = 0; i < chunk.bugIds.size(); i++) {
+            bugIds.add(chunk.bugIds.get(i));
+            bugPair.add(chunk.bugPair.get(i));
+        }
+    }
+
+    /**
+     * @return The pair of the given tester and the device with the given id, or -1 if there is no such pair
+     */
+    private int pair(int tester, int deviceId) {
+        int device = deviceIndex.get(deviceId);
+        return device < 0 ? -1 : pairIndex.get(LongIntMap.key(tester, device));
+    }
+
+    /**
+     * @return A store holding every row added to this builder
+     */
+    public TesterStore build() {
+        return build(0);
+    }
+
+    /**
+     * @param version Version number of the store
+     * @return A store holding every row added to this builder
+     */
+    TesterStore build(long version) {
+        int numTesters = testerIds.size();
+        int numPairs = pairTester.size();
+
+        //Renumber the testers so that the testers of each country have consecutive tester indexes, in the order they
+        //were added. Every range of pairs sorted by tester is then also grouped by country
+        int[] countryOffsets = new int[countries.size() + 1];
+        int[] byCountry = countingSort(identity(numTesters), testerCountry.toArray(), countryOffsets);
+        int[] newIndex = new int[numTesters];
+        for (int i = 0; i < numTesters; i++) {
+            newIndex[byCountry[i]] = i;
+        }
+        int[] pairNewTester = new int[numPairs];
+        for (int p = 0; p < numPairs; p++) {
+            pairNewTester[p] = newIndex[pairTester.get(p)];
+        }
+
+        //Sort the pairs by tester, then (stably) by device, so that each device's pairs end up sorted by tester
+        int[] deviceOffsets = new int[devices.size() + 1];
+        int[] byTester = countingSort(identity(numPairs), pairNewTester, new int[numTesters + 1]);
+        int[] order = countingSort(byTester, pairDevice.toArray(), deviceOffsets);
+        int[] rank = new int[numPairs];
+        int[] sortedPairTester = new int[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            rank[order[i]] = i;
+            sortedPairTester[i] = pairNewTester[order[i]];
+        }
+
+        //Lay out the bugs of each pair contiguously, in the new pair order
+        int numBugs = bugIds.size();
+        int[] sortedPairBugCount = new int[numPairs];
+        int[] pairBugOffsets = new int[numPairs + 1];
+        for (int p = 0; p < numPairs; p++) {
+            sortedPairBugCount[p] = pairBugCount.get(order[p]);
+            pairBugOffsets[p + 1] = pairBugOffsets[p] + (keepBugIds ? sortedPairBugCount[p] : 0);
+        }
+        int[] next = Arrays.copyOf(pairBugOffsets, numPairs);
+        BugStorage sortedBugIds = BugStorage.allocate(numBugs, offHeap && !compressBugIds);
+        for (int i = 0; i < numBugs; i++) {
+            sortedBugIds.set(next[rank[bugPair.get(i)]]++, bugIds.get(i));
+        }
+        if (compressBugIds) {
+            sortedBugIds = CompressedBugStorage.compress(sortedBugIds, pairBugOffsets);
+        }
+
+        return new TesterStore(countries, devices, names, permute(testerIds, byCountry),
+                permute(firstNames, byCountry), permute(lastNames, byCountry), permute(testerCountry, byCountry),
+                permute(testerBugCount, byCountry), permute(testerRows, byCountry), deviceIndex, countryOffsets,
+                identity(numTesters), deviceOffsets, sortedPairTester, sortedPairBugCount, pairBugOffsets, sortedBugIds,
+                keepBugIds, lazyBugs == null ? null : lazyBugs.build(devices.size()), version);
+    }
+
+    /**
+     * @return A list in which to collect bugs, off the heap if the store keeps its bug ids off the heap
+     */
+    private IntList newBugList() {
+        return offHeap && !compressBugIds ? new BufferIntList() : new HeapIntList();
+    }
+
+    /**
+     * @return The values of a list, in the given order
+     */
+    private static int[] permute(IntList values, int[] order) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = values.get(order[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Stable counting sort of a list of items by a small integer key
+     * @param items Items to sort
+     * @param keys Key of each item, indexed by item
+     * @param offsets Output array of length (max key + 2). On return, the items with key k are at positions
+     *                offsets[k] up to offsets[k + 1] of the result
+     * @return The sorted items
+     */
+    private static int[] countingSort(int[] items, int[] keys, int[] offsets) {
+        for (int item : items) {
+            offsets[keys[item] + 1]++;
+        }
+        for (int k = 1; k < offsets.length; k++) {
+            offsets[k] += offsets[k - 1];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        int[] sorted = new int[items.length];
+        for (int item : items) {
+            sorted[next[keys[item]]++] = item;
+        }
+        return sorted;
+    }
+
+    private static int[] identity(int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    /**
+     * Bugs parsed from one part of bugs.csv, resolved to tester indexes and pairs against the builder that created
+     * the chunk, along with the chunk's partial bug counts per tester and per pair. A chunk is filled by a single
+     * thread, and only reads the builder
+     */
+    public class BugChunk {
+        private final int[] testerBugCount = new int[testerIds.size()];
+        private final int[] pairBugCount = new int[pairTester.size()];
+        private final IntList bugIds = newBugList();
+        private final IntList bugPair = newBugList();
+        private int rows;
+
+        /**
+         * Adds a row of bugs.csv to this chunk
+         * @param bugId The id of the bug
+         * @param deviceId The id of the device on which the bug was identified
+         * @param testerId The id of the tester who identified the bug
+         */
+        public void addBug(int bugId, int deviceId, int testerId) {
+            rows++;
+            int tester = testerIndex.get(testerId);
+            if (tester < 0) {
+                return;
+            }
+            testerBugCount[tester]++;
+            int pair = pair(tester, deviceId);
+            if (pair >= 0) {
+                pairBugCount[pair]++;
+                if (keepBugIds) {
+                    bugIds.add(bugId);
+                    bugPair.add(pair);
+                }
+            }
+        }
+
+        /**
+         * @return The number of rows added to this chunk, including rows that reference an unknown tester
+         */
+        public int size() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package testermatcher;
+
+import csv.CsvReader;
+import models.TesterResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a file of queries without going through the REPL. The file is a csv file with a column line, and a country
+ * and a device column, each holding a search field as it would be entered at the REPL prompts, for example
+ * "gb,us","iphone 4". An optional third column limits a query to the given number of testers. Queries run in
+ * parallel, but their results are written in the order of the file, one after another, through a single writer.
+ *
+ * Only a bounded number of queries are in flight at once, so the results of a long file are never all held in memory:
+ * once the window is full, the oldest query is waited for and written out before the next one is submitted.
+ */
+public class BatchRunner {
+    private static final int QUERIES_PER_THREAD = 4;
+
+    private final QueryExecutor executor;
+    private final int threads;
+
+    /**
+     * A query that has been submitted, and the search fields it was built from
+     */
+    private static class Pending {
+        private final String countries;
+        private final String devices;
+        private final Future<List<TesterResult>> result;
+
+        private Pending(String countries, String devices, Future<List<TesterResult>> result) {
+            this.countries = countries;
+            this.devices = devices;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Constructor for this class
+     * @param executor Executor with which to run queries
+     * @param threads Number of queries to run at once, or 0 or less for one per processor
+     */
+    public BatchRunner(QueryExecutor executor, int threads) {
+        this.executor = executor;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs every query of a file, writing each query's search fields followed by its results. A query whose fields
+     * are invalid is answered with an error message, and does not stop the rest of the file
+     * @param queries File of queries
+     * @param out Writer to which to write results
+     * @return The number of queries run
+     * @throws IOException Thrown when the file cannot be read, or the results cannot be written
+     */
+    public int run(File queries, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Pending> pending = new ArrayDeque<>();
+        int count = 0;
+        try (CsvReader rows = CsvReader.open(queries)) {
+            rows.next(); //advance past column line
+            while (rows.next()) {
+                String countries = TesterMatcherMain.normalize(rows.stringField(0).strip());
+                String devices = rows.fieldCount() > 1
+                        ? TesterMatcherMain.normalize(rows.stringField(1).strip()) : "";
+                String limit = rows.fieldCount() > 2 ? rows.stringField(2).strip() : "";
+                pending.add(new Pending(countries, devices, pool.submit(() -> execute(countries, devices, limit))));
+                count++;
+                if (pending.size() >= threads * QUERIES_PER_THREAD) {
+                    write(pending.poll(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+        return count;
+    }
+
+    private List<TesterResult> execute(String countries, String devices, String limit) {
+        if (!TesterMatcherMain.isValidInput(countries) || !TesterMatcherMain.isValidInput(devices)
+                || !limit.matches("\\d*")) {
+            throw new IllegalArgumentException("invalid input");
+        }
+        return executor.executeQuery(Arrays.asList(countries.split(",")), Arrays.asList(devices.split(",")),
+                limit.isEmpty() ? 0 : Integer.parseInt(limit));
+    }
+
+    private static void write(Pending query, Writer out) throws IOException {
+        out.write("country: " + query.countries + "\n");
+        out.write("device: " + query.devices + "\n");
+        try {
+            ResultFormatter.write(query.result.get(), out);
+        } catch (ExecutionException e) {
+            out.write("Error, " + e.getCause().getMessage() + "\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a query");
+        }
+        out.write("\n");
+    }
+}
@@ -0,0 +1,253 @@
+package testermatcher;
+
+import store.PartitionedStore;
+import store.StoreDelta;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces all of the data of a repository with a fresh load of the input files, without ever stopping it from
+ * answering queries. The new store is loaded on a background thread (and, if the loader has several threads, in
+ * parallel) while queries keep running on the old one, and is then swapped in with a single write. Queries that are
+ * already running finish on the old store, which is released once the last of them is done.
+ *
+ * Only one reload runs at a time, so that at most two stores are ever in memory at once: asking for a reload while
+ * one is waiting to start joins that one, and asking while one is running queues a single reload after it. Once the
+ * new store is in, the result cache is emptied, as its results hold on to the old store until the next query.
+ *
+ * Rows applied from delta files while a reload is running are not in the files being loaded, so they are applied to
+ * the new store too, just before it is swapped in. Rows the tailer applies in the meantime need no such care: the
+ * tailer goes back to where the reload stopped reading the files, and reads them again from there.
+ *
+ * A reload can also be triggered by the input files changing on disk. Files are swapped in by copying or moving them
+ * over the old ones; a reload starts once every file has stayed the same for a whole polling interval, so that a file
+ * that is still being copied is not read half-written.
+ */
+public class DatasetReloader {
+    private final TesterRepository repository;
+    private final StoreSource source;
+    private final TesterLoader loader;
+    //Tailer following the files, or null. Its offsets must move to the ends of the files the new store was read from
+    private final DeltaTailer tailer;
+    //Cache of results on the old store, or null
+    private final QueryCache cache;
+    private final ExecutorService reloads = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dataset-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //Reload waiting to start, if any, which any further requests join
+    private CompletableFuture<PartitionedStore> queued;
+    //Deltas applied since the running reload started, to apply to its new store as well, or null if none is running
+    private List<StoreDelta> appendedDuringReload;
+
+    /**
+     * Constructor for this class
+     * @param repository Repository whose data to replace
+     * @param source Loads the whole data set anew with the given loader, as the repository was first loaded
+     * @param loader Loader with which the data is loaded, which remembers how much of each file it read
+     * @param tailer Tailer applying rows appended to the files to the repository, or null if there is none
+     * @param cache Cache of results of queries on the repository, or null if there is none
+     */
+    public DatasetReloader(TesterRepository repository, StoreSource source, TesterLoader loader, DeltaTailer tailer,
+                           QueryCache cache) {
+        this.repository = repository;
+        this.source = source;
+        this.loader = loader;
+        this.tailer = tailer;
+        this.cache = cache;
+    }
+
+    /**
+     * Starts reloading every input file in the background, unless a reload is already waiting to start
+     * @return Completes with the new store once it answers queries, or exceptionally if the files could not be read,
+     * in which case the repository keeps its old store
+     */
+    public synchronized CompletableFuture<PartitionedStore> reload() {
+        if (queued == null) {
+            CompletableFuture<PartitionedStore> reload = new CompletableFuture<>();
+            queued = reload;
+            reloads.execute(() -> {
+                synchronized (this) {
+                    queued = null;
+                }
+                try {
+                    reload.complete(loadAndSwap());
+                } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                    //Running out of memory while building the new store still leaves the old one serving
+                    reload.completeExceptionally(e);
+                }
+            });
+        }
+        return queued;
+    }
+
+    /**
+     * Applies the rows of delta files to the repository, and, if a reload is running, to the store it is loading
+     * @param delta Rows to apply
+     */
+    public synchronized void append(StoreDelta delta) {
+        repository.append(delta);
+        if (appendedDuringReload != null && !delta.isEmpty()) {
+            appendedDuringReload.add(delta);
+        }
+    }
+
+    /**
+     * Loads the new store, applies the deltas appended meanwhile, and swaps it in, along with the tailer's offsets if
+     * there is a tailer
+     */
+    private PartitionedStore loadAndSwap() throws IOException {
+        synchronized (this) {
+            appendedDuringReload = new ArrayList<>();
+        }
+        try {
+            PartitionedStore store = source.load(loader);
+            synchronized (this) {
+                for (StoreDelta delta : appendedDuringReload) {
+                    store = store.apply(delta);
+                }
+                if (tailer != null) {
+                    tailer.replace(store, loader.getLoadedLength("-b"), loader.getLoadedLength("-m"));
+                } else {
+                    repository.replace(store);
+                }
+            }
+            if (cache != null) {
+                cache.clear();
+            }
+            return store;
+        } finally {
+            synchronized (this) {
+                appendedDuringReload = null;
+            }
+        }
+    }
+
+    /**
+     * Checks the input files every given interval on a background thread, until the program exits, and reloads them
+     * when they change. Appending to a file that is being followed by the tailer is not a change: such a file only
+     * counts as changed if it shrinks, or is replaced by another file (moved over it)
+     * @param files Input files to watch
+     * @param followed Files whose appended rows are applied by the tailer
+     * @param intervalMillis Time between two checks, in milliseconds
+     */
+    public void watch(Collection<File> files, Set<File> followed, long intervalMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dataset-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<File, FileState> loaded = new HashMap<>();
+        Map<File, FileState> last = new HashMap<>();
+        for (File file : files) {
+            loaded.put(file, FileState.of(file));
+        }
+        last.putAll(loaded);
+        executor.scheduleWithFixedDelay(() -> {
+            boolean changed = false;
+            boolean settled = true;
+            for (File file : files) {
+                FileState state = FileState.of(file);
+                changed |= state.differsFrom(loaded.get(file), followed.contains(file));
+                settled &= state.equals(last.get(file)) && state.exists();
+                last.put(file, state);
+            }
+            if (changed && settled) {
+                loaded.putAll(last);
+                System.out.println("Input files changed, reloading");
+                reload().whenComplete(DatasetReloader::report);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Prints the outcome of a reload
+     * @param store The new store, or null if the reload failed
+     * @param error Why the reload failed, or null if it succeeded
+     */
+    static void report(PartitionedStore store, Throwable error) {
+        if (error != null) {
+            System.out.println("Error, could not reload, still using the previous data: " + error.getMessage());
+        } else {
+            System.out.println("Reloaded " + store.testerCount() + " testers and " + store.bugCount() + " bugs");
+        }
+    }
+
+    /**
+     * Loads the whole data set with a loader
+     */
+    public interface StoreSource {
+        PartitionedStore load(TesterLoader loader) throws IOException;
+    }
+
+    /**
+     * What the watcher knows of a file: its identity on disk, length and modification time
+     */
+    private static final class FileState {
+        private final Object fileKey;
+        private final long length;
+        private final long modified;
+
+        private FileState(Object fileKey, long length, long modified) {
+            this.fileKey = fileKey;
+            this.length = length;
+            this.modified = modified;
+        }
+
+        static FileState of(File file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return new FileState(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                //The file is missing, most likely for a moment while it is being replaced
+                return new FileState(null, -1, -1);
+            }
+        }
+
+        boolean exists() {
+            return length >= 0;
+        }
+
+        /**
+         * @param loaded State of the file when it was last loaded
+         * @param followed True if rows appended to the file are applied without reloading
+         * @return True if the file needs to be reloaded
+         */
+        boolean differsFrom(FileState loaded, boolean followed) {
+            if (followed) {
+                return !Objects.equals(fileKey, loaded.fileKey) || length < loaded.length;
+            }
+            return !equals(loaded);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileState)) {
+                return false;
+            }
+            FileState other = (FileState) o;
+            return Objects.equals(fileKey, other.fileKey) && length == other.length && modified == other.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, length, modified);
+        }
+    }
+}
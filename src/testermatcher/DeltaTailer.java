@@ -0,0 +1,150 @@
+package testermatcher;
+
+import csv.CsvReader;
+import store.PartitionedStore;
+import store.StoreDelta;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class follows bugs.csv and tester_device.csv as new rows are appended to them, and applies each batch of new
+ * rows to a repository without rebuilding it. Only complete lines are read; a line that is still being written is
+ * picked up by the next poll.
+ */
+public class DeltaTailer {
+    private final TesterRepository repository;
+    private final File bugs;
+    private final File testerDevices;
+    //Offsets up to which each file has been applied
+    private long bugsOffset;
+    private long testerDevicesOffset;
+
+    /**
+     * Constructor for this class
+     * @param repository Repository to which to apply new rows
+     * @param bugs bugs.csv
+     * @param bugsOffset Number of bytes of bugs.csv already held by the repository
+     * @param testerDevices tester_device.csv
+     * @param testerDevicesOffset Number of bytes of tester_device.csv already held by the repository
+     */
+    public DeltaTailer(TesterRepository repository, File bugs, long bugsOffset, File testerDevices,
+                       long testerDevicesOffset) {
+        this.repository = repository;
+        this.bugs = bugs;
+        this.bugsOffset = bugsOffset;
+        this.testerDevices = testerDevices;
+        this.testerDevicesOffset = testerDevicesOffset;
+    }
+
+    /**
+     * Polls both files every given interval on a background thread, until the program exits
+     * @param intervalMillis Time between two polls, in milliseconds
+     */
+    public void start(long intervalMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "delta-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not read new rows: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the rows appended to both files since the last poll, and applies them to the repository
+     * @return The number of rows applied
+     * @throws IOException Thrown when a file cannot be read, or has shrunk since the last poll
+     */
+    public synchronized int poll() throws IOException {
+        StoreDelta delta = new StoreDelta();
+        long newTesterDevicesOffset = readTesterDevices(testerDevices, testerDevicesOffset, delta);
+        long newBugsOffset = readBugs(bugs, bugsOffset, delta);
+        repository.append(delta);
+        testerDevicesOffset = newTesterDevicesOffset;
+        bugsOffset = newBugsOffset;
+        return delta.testerDeviceCount() + delta.bugCount();
+    }
+
+    /**
+     * Replaces the repository's data with a fresh load of the files, and from then on follows the files from where
+     * that load stopped reading them. This is done under the same lock as polling, so that no rows are applied twice,
+     * or applied to the old data and lost
+     * @param store Store holding the fresh load of the files
+     * @param bugsOffset Number of bytes of bugs.csv held by the new store
+     * @param testerDevicesOffset Number of bytes of tester_device.csv held by the new store
+     */
+    public synchronized void replace(PartitionedStore store, long bugsOffset, long testerDevicesOffset) {
+        repository.replace(store);
+        this.bugsOffset = bugsOffset;
+        this.testerDevicesOffset = testerDevicesOffset;
+    }
+
+    /**
+     * Reads whole delta files, which have the same columns (and column line) as bugs.csv and tester_device.csv
+     * @param bugs File of new bugs, or null
+     * @param testerDevices File of new tester/device mappings, or null
+     * @return The rows of both files
+     * @throws IOException Thrown when a file does not exist or cannot be read
+     */
+    public static StoreDelta readDeltaFiles(File bugs, File testerDevices) throws IOException {
+        StoreDelta delta = new StoreDelta();
+        if (testerDevices != null) {
+            readTesterDevices(testerDevices, 0, delta);
+        }
+        if (bugs != null) {
+            readBugs(bugs, 0, delta);
+        }
+        return delta;
+    }
+
+    private static long readTesterDevices(File file, long from, StoreDelta delta) throws IOException {
+        checkLength(file, from);
+        long end = CsvReader.completeLinesEnd(file, from);
+        if (end > from) {
+            try (CsvReader rows = CsvReader.open(file, from, end)) {
+                if (from == 0) {
+                    rows.next(); //advance past column line
+                }
+                while (rows.next()) {
+                    delta.addTesterDevice(rows.intField(0), rows.intField(1));
+                }
+            }
+        }
+        return end;
+    }
+
+    private static long readBugs(File file, long from, StoreDelta delta) throws IOException {
+        checkLength(file, from);
+        long end = CsvReader.completeLinesEnd(file, from);
+        if (end > from) {
+            try (CsvReader rows = CsvReader.open(file, from, end)) {
+                if (from == 0) {
+                    rows.next(); //advance past column line
+                }
+                while (rows.next()) {
+                    delta.addBug(rows.intField(0), rows.intField(1), rows.intField(2));
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @param from Number of bytes of the file already applied, which always end with a complete line
+     * @throws IOException Thrown when the file is shorter than that, as when it has been rewritten
+     */
+    private static void checkLength(File file, long from) throws IOException {
+        if (file.length() < from) {
+            throw new IOException(file + " has shrunk since it was loaded, it needs to be reloaded");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package testermatcher;
+
+import models.TesterResult;
+import query.Query;
+
+import java.util.List;
+
+/**
+ * Something queries can be run on: a repository in this process, or the shards of a repository held by other
+ * processes. Queries are run on a given version of the data, so that a result can be cached for as long as the
+ * version it was computed on is current
+ * @param <V> Type of the versions of the data
+ */
+public interface QueryBackend<V> {
+    /**
+     * @return The current version of the data. A backend that cannot tell when its data changes returns a new version
+     * every time, so that no result is ever reused
+     */
+    V getVersion();
+
+    /**
+     * Runs a query against a given version of the data
+     * @param version Version of the data to search, as returned by getVersion()
+     * @param query Query to run
+     * @return A list of testers matching the query, sorted by the number of bugs identified and cut off at the
+     * query's limit
+     */
+    List<TesterResult> execute(V version, Query query);
+}
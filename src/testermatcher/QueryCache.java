@@ -0,0 +1,95 @@
+package testermatcher;
+
+import models.TesterResult;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of query results, evicting the least recently used result once it is full. Results are only valid
+ * for the version of the data they were computed on, so the cache empties itself the first time it is asked about a
+ * newer version. Keys are expected to be normalized by the caller, so that equivalent queries share an entry.
+ */
+public class QueryCache {
+    private final int capacity;
+    //Iterates from least to most recently used
+    private final LinkedHashMap<Object, List<TesterResult>> entries;
+    //Version of the data the entries were computed on, compared by identity
+    private Object version;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor for this class
+     * @param capacity Maximum number of results to keep. A capacity of 0 disables the cache
+     */
+    public QueryCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Object, List<TesterResult>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, List<TesterResult>> eldest) {
+                return size() > QueryCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up the result of a query, computing and caching it on a miss. The result is computed outside of the
+     * cache's lock, so a slow query does not hold up other lookups
+     * @param version Version of the data the query runs on, such as the store of a repository
+     * @param key Normalized form of the query
+     * @param query Computes the result of the query on the given version of the data
+     * @return The result of the query, which must not be modified
+     */
+    public List<TesterResult> get(Object version, Object key, Supplier<List<TesterResult>> query) {
+        synchronized (this) {
+            if (this.version != version) {
+                entries.clear();
+                this.version = version;
+            }
+            List<TesterResult> result = entries.get(key);
+            if (result != null) {
+                hits.increment();
+                return result;
+            }
+        }
+        misses.increment();
+        List<TesterResult> result = Collections.unmodifiableList(query.get());
+        synchronized (this) {
+            //A newer version may have been seen while the query ran, in which case the result is already stale
+            if (this.version == version && capacity > 0) {
+                entries.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops every result, along with the version of the data they were computed on, so that the cache no longer
+     * holds on to that version
+     */
+    public synchronized void clear() {
+        entries.clear();
+        version = null;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,142 @@
+package testermatcher;
+
+import metrics.LatencyHistogram;
+import models.TesterResult;
+import query.Dimension;
+import query.Dimensions;
+import query.Predicate;
+import query.Query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class turns the search fields entered by the user into a query, and runs it on a repository, or on the shards
+ * of a repository held by other processes (see {@link ShardCoordinator}). Results are
+ * cached, keyed on the normalized search fields, so that "gb,us" and "US, GB" share an entry
+ */
+public class QueryExecutor {
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private QueryBackend<?> backend;
+    private QueryCache cache;
+    //Latency of queries, by shape: the fields searched on, and whether the result was limited
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for this class
+     * @param backend Repository on which to perform the queries
+     */
+    public QueryExecutor(QueryBackend<?> backend) {
+        this(backend, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor for this class
+     * @param backend Repository on which to perform the queries
+     * @param cacheSize Maximum number of query results to cache, or 0 to disable caching
+     */
+    public QueryExecutor(QueryBackend<?> backend, int cacheSize) {
+        this.backend = backend;
+        this.cache = new QueryCache(cacheSize);
+    }
+
+    /**
+     * Builds a query out of the search fields, executes the query, returns the result
+     * @param countries List of countries by which to search
+     * @param devices List of devices by which to search
+     * @return Result of executing the query on the given search fields, sorted by the number of bugs each tester has
+     * identified. The list must not be modified, as it may be shared with other callers
+     */
+    public List<TesterResult> executeQuery(List<String> countries, List<String> devices) {
+        return executeQuery(countries, devices, 0);
+    }
+
+    /**
+     * Builds a query out of the search fields, executes the query, returns the top of the result
+     * @param countries List of countries by which to search
+     * @param devices List of devices by which to search
+     * @param limit Maximum number of testers to return, or 0 for every matching tester
+     * @return Result of executing the query on the given search fields, sorted by the number of bugs each tester has
+     * identified. The list must not be modified, as it may be shared with other callers
+     */
+    public List<TesterResult> executeQuery(List<String> countries, List<String> devices, int limit) {
+        long start = System.nanoTime();
+        List<String> countryValues = normalize(countries);
+        List<String> deviceValues = normalize(devices);
+        List<TesterResult> result = execute(backend, Arrays.asList(countryValues, deviceValues, limit),
+                new Query(Arrays.asList(toPredicate(Dimensions.COUNTRY, countryValues),
+                        toPredicate(Dimensions.DEVICE, deviceValues)), limit));
+        String shape = shape(countryValues, deviceValues, limit);
+        LatencyHistogram latency = latencies.get(shape);
+        if (latency == null) {
+            latency = latencies.computeIfAbsent(shape, s -> new LatencyHistogram());
+        }
+        latency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Runs a query on the current version of the backend's data, or looks its result up in the cache
+     * @param backend Backend on which to run the query
+     * @param key Normalized form of the query
+     * @param query Query to run
+     * @return The result of the query
+     */
+    private <V> List<TesterResult> execute(QueryBackend<V> backend, Object key, Query query) {
+        V version = backend.getVersion();
+        return cache.get(version, key, () -> backend.execute(version, query));
+    }
+
+    /**
+     * @return Latency histograms of the queries run so far, by shape, such as "country+device" or "all, limited"
+     */
+    public Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(latencies));
+    }
+
+    /**
+     * @return The shape of a query: the fields it searches on, and whether its result is limited
+     */
+    private static String shape(List<String> countries, List<String> devices, int limit) {
+        String fields = countries.isEmpty() ? (devices.isEmpty() ? "all" : "device")
+                : (devices.isEmpty() ? "country" : "country+device");
+        return limit == 0 ? fields : fields + ", limited";
+    }
+
+    public QueryCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param values The values entered in a search field
+     * @return The values lowercased, de-duplicated and sorted, or an empty list when the first value is empty or all,
+     * which means the end user has not chosen to search by this field
+     */
+    private static List<String> normalize(List<String> values) {
+        String value0 = values.get(0);
+        if (value0.isEmpty() || value0.equalsIgnoreCase("all")) {
+            return Collections.emptyList();
+        }
+        TreeSet<String> normalized = new TreeSet<>();
+        for (String value : values) {
+            normalized.add(value.toLowerCase(Locale.ROOT));
+        }
+        return Arrays.asList(normalized.toArray(new String[0]));
+    }
+
+    /**
+     * @param dimension Dimension searched by a field
+     * @param values The normalized values entered in that field
+     * @return A predicate on the dimension, matching everything if there are no values
+     */
+    private static Predicate toPredicate(Dimension dimension, List<String> values) {
+        return values.isEmpty() ? Predicate.all(dimension) : new Predicate(dimension, values);
+    }
+}
@@ -0,0 +1,174 @@
+package testermatcher;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import models.TesterResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers queries over HTTP, so that many clients can share one loaded repository. A query is a GET request such as
+ * "/testers?country=gb,us&amp;device=iphone 4&amp;limit=10", where a left out field means "all", exactly as at the
+ * REPL prompts, and a left out limit means every matching tester. The response is the same table the REPL prints, or,
+ * with format=csv or format=json, the same results in that form; offset=N leaves out the first N testers, to page
+ * through a result together with limit. Results are streamed to the client as they are formatted.
+ *
+ * Each request is handled on its own thread. Queries only read from the repository, which swaps in new versions of
+ * its store atomically, and the result cache is synchronized, so any number of requests may run at once.
+ */
+public class QueryServer {
+    private static final String PATH = "/testers";
+
+    private final QueryExecutor executor;
+    private final HttpServer server;
+
+    /**
+     * Constructor for this class
+     * @param executor Executor with which to run queries
+     * @param port Port on which to listen
+     * @throws IOException Thrown when the port cannot be bound
+     */
+    public QueryServer(QueryExecutor executor, int port) throws IOException {
+        this.executor = executor;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(newThreadPerTaskExecutor());
+    }
+
+    /**
+     * Starts answering requests on a background thread
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops answering requests, waiting up to the given time for requests in progress to finish
+     * @param delaySeconds Maximum time to wait, in seconds
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        //Once the headers are sent, an error can no longer be reported to the client with its own status
+        boolean headersSent = false;
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, "Error, only GET is supported\n");
+                return;
+            }
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String countries = TesterMatcherMain.normalize(parameters.getOrDefault("country", ""));
+            String devices = TesterMatcherMain.normalize(parameters.getOrDefault("device", ""));
+            if (!TesterMatcherMain.isValidInput(countries) || !TesterMatcherMain.isValidInput(devices)) {
+                respond(exchange, 400, "Error, invalid input\n");
+                return;
+            }
+            int limit = parseCount(parameters.getOrDefault("limit", "0"));
+            int offset = parseCount(parameters.getOrDefault("offset", "0"));
+            if (limit < 0 || offset < 0) {
+                respond(exchange, 400, "Error, limit and offset must be numbers, 0 or more\n");
+                return;
+            }
+            ResultFormatter.Format format = ResultFormatter.Format.forName(parameters.getOrDefault("format", "table"));
+            if (format == null) {
+                respond(exchange, 400, "Error, the format must be one of table, csv or json\n");
+                return;
+            }
+            List<TesterResult> result = executor.executeQuery(Arrays.asList(countries.split(",")),
+                    Arrays.asList(devices.split(",")), TesterMatcherMain.pageEnd(offset, limit));
+            //The length of the response is not known up front, so it is sent in chunks as it is written
+            exchange.getResponseHeaders().set("Content-Type", format.getContentType() + "; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            headersSent = true;
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                    StandardCharsets.UTF_8))) {
+                ResultFormatter.write(result, offset, format, out);
+            }
+        } catch (RuntimeException e) {
+            if (headersSent) {
+                System.err.println("Could not write the response to " + exchange.getRequestURI() + ": " + e);
+            } else {
+                respond(exchange, 500, "Error, " + e.getMessage() + "\n");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param value Value of a parameter
+     * @return The value, if it is a number 0 or more, or -1 otherwise
+     */
+    private static int parseCount(String value) {
+        try {
+            return Math.max(-1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param rawQuery The query string of a request, still URL-encoded, or null if there is none
+     * @return Mapping from each parameter name to its decoded value. If a parameter is repeated, the last value wins
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value,
+                    StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Creates an executor that runs every task on a new virtual thread. Virtual threads are only available from Java
+     * 21 on, so on older runtimes this falls back to a cached pool of platform threads, which likewise never queues a
+     * request behind another one
+     * @return Executor that starts a thread per task
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
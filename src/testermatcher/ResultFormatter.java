@@ -0,0 +1,224 @@
+package testermatcher;
+
+import models.TesterResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * This class formats the results of a query. Since the results are essentially a table, the
+ * output is formatted as such. The output will look like:
+ * "First Name"   "Last Name"   "Experience"
+ * "----------"   "---------"   "----------"
+ * followed by the rows, if any, of data
+ *
+ * Results can also be written as csv, with a column line like the input files, or as a JSON array of objects, for
+ * other programs to read. Rows are written straight to the output one field at a time, so a large result is never
+ * held in memory as text, and no row allocates a String of its own.
+ */
+
+public class ResultFormatter {
+    private static final int COLUMN_WIDTH = 10;
+    private static final String[] HEADER = {"First Name", "Last Name", "Experience"};
+    private static final String[] RULE = {"----------", "---------", "----------"};
+    private static final String CSV_HEADER = "\"testerId\",\"firstName\",\"lastName\",\"numBugs\"\n";
+
+    /**
+     * The forms in which results can be written
+     */
+    public enum Format {
+        //The table described in the class-level comment
+        TABLE("text/plain"),
+        //A column line followed by one line per tester, every field quoted
+        CSV("text/csv"),
+        //An array with one object per tester, holding the same fields, under the same names, as the csv columns
+        JSON("application/json");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @param name Name of a format, in any case
+         * @return The format with that name, or null if there is none
+         */
+        public static Format forName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @param testers List of testers that are the result of a query, already sorted by number of bugs identified
+     * @return Formatted string of results in the form described in the class-level comment
+     */
+    public static String format(List<TesterResult> testers)  {
+        StringBuilder result = new StringBuilder();
+        try {
+            write(testers, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //never thrown by a StringBuilder
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes results as a table straight to a stream, a row at a time
+     * @param testers List of testers that are the result of a query, already sorted by number of bugs identified
+     * @param out Stream to write to, in the form described in the class-level comment
+     * @throws IOException Thrown when the stream cannot be written to
+     */
+    public static void write(List<TesterResult> testers, Appendable out) throws IOException {
+        write(testers, 0, Format.TABLE, out);
+    }
+
+    /**
+     * Writes one page of results straight to a stream, a row at a time
+     * @param testers List of testers that are the result of a query, already sorted by number of bugs identified
+     * @param offset Number of testers at the top of the list to leave out
+     * @param format Form in which to write the results
+     * @param out Stream to write to
+     * @throws IOException Thrown when the stream cannot be written to
+     */
+    public static void write(List<TesterResult> testers, int offset, Format format, Appendable out)
+            throws IOException {
+        List<TesterResult> page = testers.subList(Math.min(offset, testers.size()), testers.size());
+        char[] digits = new char[11];
+        switch (format) {
+            case TABLE:
+                writeRow(out, HEADER);
+                writeRow(out, RULE);
+                for (TesterResult tester : page) {
+                    out.append(tester.getFirstName());
+                    pad(out, tester.getFirstName().length());
+                    out.append(' ').append(tester.getLastName());
+                    pad(out, tester.getLastName().length());
+                    out.append(' ');
+                    pad(out, appendInt(out, tester.getNumBugs(), digits));
+                    out.append('\n');
+                }
+                break;
+            case CSV:
+                out.append(CSV_HEADER);
+                for (TesterResult tester : page) {
+                    out.append('"');
+                    appendInt(out, tester.getId(), digits);
+                    out.append("\",");
+                    quoteCsv(out, tester.getFirstName());
+                    out.append(',');
+                    quoteCsv(out, tester.getLastName());
+                    out.append(",\"");
+                    appendInt(out, tester.getNumBugs(), digits);
+                    out.append("\"\n");
+                }
+                break;
+            case JSON:
+                out.append('[');
+                boolean first = true;
+                for (TesterResult tester : page) {
+                    out.append(first ? "\n" : ",\n");
+                    first = false;
+                    out.append("{\"testerId\":");
+                    appendInt(out, tester.getId(), digits);
+                    out.append(",\"firstName\":");
+                    quoteJson(out, tester.getFirstName());
+                    out.append(",\"lastName\":");
+                    quoteJson(out, tester.getLastName());
+                    out.append(",\"numBugs\":");
+                    appendInt(out, tester.getNumBugs(), digits);
+                    out.append('}');
+                }
+                out.append("\n]\n");
+                break;
+        }
+    }
+
+    private static void writeRow(Appendable out, String[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(row[i]);
+            pad(out, row[i].length());
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Pads a column with spaces up to the column width, so that its value is left-aligned
+     * @param length Number of characters already written to the column
+     */
+    private static void pad(Appendable out, int length) throws IOException {
+        for (int i = length; i < COLUMN_WIDTH; i++) {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * Writes the decimal digits of a number into the end of a buffer
+     * @return The number of characters written
+     */
+    private static int toChars(int value, char[] buffer) {
+        long remaining = Math.abs((long) value);
+        int i = buffer.length;
+        do {
+            buffer[--i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0) {
+            buffer[--i] = '-';
+        }
+        return buffer.length - i;
+    }
+
+    /**
+     * @return The number of characters written
+     */
+    private static int appendInt(Appendable out, int value, char[] buffer) throws IOException {
+        int length = toChars(value, buffer);
+        for (int i = buffer.length - length; i < buffer.length; i++) {
+            out.append(buffer[i]);
+        }
+        return length;
+    }
+
+    private static void quoteCsv(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void quoteJson(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append("\\u00");
+                out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,189 @@
+package testermatcher;
+
+import models.TesterResult;
+import query.Query;
+import query.QueryPlanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs queries on data split into shards by tester id, each shard held by a {@link ShardWorker} in another process.
+ * Every query is sent to every shard at once, and the top testers of each shard are merged into the final result.
+ * Since each tester belongs to exactly one shard, a tester's count is never split across shards.
+ *
+ * Every worker tells the coordinator which shard it serves when a connection opens. A query fails, rather than miss or
+ * double count testers, unless the workers serve every shard from 0 up to the number of addresses exactly once: a
+ * worker split into another number of shards, or serving the same shard as another worker, is refused. The check is
+ * made on the connections each query uses, so a worker restarted with another shard is checked again as soon as it is
+ * reconnected to.
+ *
+ * Connections to the workers are kept open and reused, one per query in flight per shard. The coordinator cannot
+ * tell when a worker's data changes, so it never lets a result be reused; every query goes to the workers.
+ */
+public class ShardCoordinator implements QueryBackend<Object> {
+    private final List<InetSocketAddress> shards;
+    //Open connections to each shard that no query is using
+    private final List<ConcurrentLinkedQueue<Connection>> idle = new ArrayList<>();
+
+    /**
+     * Constructor for this class. Connections are opened as queries need them
+     * @param shards Address of the worker serving each shard
+     */
+    public ShardCoordinator(List<InetSocketAddress> shards) {
+        this.shards = shards;
+        for (int i = 0; i < shards.size(); i++) {
+            idle.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    @Override
+    public Object getVersion() {
+        return new Object();
+    }
+
+    /**
+     * Sends the query to every shard before reading any response, so that the shards work on it in parallel
+     * @throws UncheckedIOException Thrown when a shard cannot be reached, or the workers do not serve every shard
+     * exactly once
+     * @throws IllegalArgumentException Thrown when a shard rejects the query
+     */
+    @Override
+    public List<TesterResult> execute(Object version, Query query) {
+        List<Connection> connections = new ArrayList<>(shards.size());
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                Connection connection = idle.get(i).poll();
+                connections.add(connection != null ? connection : new Connection(i, shards.get(i)));
+            }
+            checkShards(connections);
+            for (Connection connection : connections) {
+                connection.send(query);
+            }
+            List<List<TesterResult>> results = new ArrayList<>(shards.size());
+            IllegalArgumentException rejected = null;
+            for (Connection connection : connections) {
+                try {
+                    results.add(connection.receive());
+                } catch (IllegalArgumentException e) {
+                    rejected = e;
+                }
+            }
+            for (Connection connection : connections) {
+                idle.get(connection.address).add(connection);
+            }
+            if (rejected != null) {
+                throw rejected;
+            }
+            return QueryPlanner.merge(results, query.getLimit());
+        } catch (IOException e) {
+            //The state of the connections is unknown, so none of them is reused
+            connections.forEach(Connection::close);
+            throw new UncheckedIOException("Could not query every shard: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks that the workers of a query's connections, one per address, serve every shard exactly once, as each of
+     * them said when its connection opened
+     * @param connections A connection to the worker at each address, in the order of the addresses
+     * @throws IOException Thrown when a worker serves a shard of another number of shards, or the same shard as
+     * another worker
+     */
+    private void checkShards(List<Connection> connections) throws IOException {
+        //The address of the worker serving each shard, or -1 if none has been seen yet
+        int[] servedBy = new int[shards.size()];
+        Arrays.fill(servedBy, -1);
+        for (Connection connection : connections) {
+            String worker = "the worker at " + shards.get(connection.address);
+            int shard = connection.servedShard;
+            int shardCount = connection.servedShards;
+            if (shardCount != shards.size()) {
+                throw new IOException(worker + " serves a shard of " + shardCount + " shards, but there are "
+                        + shards.size() + " addresses");
+            }
+            if (shard < 0 || shard >= shardCount) {
+                throw new IOException(worker + " serves shard " + shard + ", which is not one of the " + shardCount);
+            }
+            if (servedBy[shard] >= 0) {
+                throw new IOException(worker + " serves shard " + shard + ", as does the worker at "
+                        + shards.get(servedBy[shard]));
+            }
+            servedBy[shard] = connection.address;
+        }
+    }
+
+    /**
+     * Closes every idle connection
+     */
+    public void close() {
+        for (ConcurrentLinkedQueue<Connection> connections : idle) {
+            Connection connection;
+            while ((connection = connections.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * An open connection to a shard
+     */
+    private static class Connection implements Closeable {
+        //Index of the worker's address
+        private final int address;
+        //The shard the worker serves, and the number of shards, as the worker told in the handshake
+        private final int servedShard;
+        private final int servedShards;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(int address, InetSocketAddress socketAddress) throws IOException {
+            this.address = address;
+            this.socket = new Socket();
+            try {
+                socket.connect(socketAddress);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                ShardProtocol.writeHandshake(out);
+                out.flush();
+                int[] served = ShardProtocol.readShard(in);
+                servedShard = served[0];
+                servedShards = served[1];
+            } catch (IOException e) {
+                close();
+                throw new IOException("the worker at " + socketAddress + ": " + e.getMessage(), e);
+            }
+        }
+
+        private void send(Query query) throws IOException {
+            ShardProtocol.writeQuery(out, query);
+            out.flush();
+        }
+
+        private List<TesterResult> receive() throws IOException {
+            return ShardProtocol.readResult(in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Nothing more can be done with the connection
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package testermatcher;
+
+import models.TesterResult;
+import query.Dimension;
+import query.Dimensions;
+import query.Predicate;
+import query.Query;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary protocol spoken between a {@link ShardCoordinator} and its {@link ShardWorker}s over TCP. A connection
+ * opens with a magic number and a protocol version from the coordinator, answered by the worker with the shard it
+ * serves and the number of shards the data is split into. It then carries any number of requests, each answered
+ * before the next is sent. Numbers are big-endian ints and strings are in modified UTF-8, as written by
+ * DataOutputStream.
+ *
+ * A request is a query: its limit, its number of predicates, and for each predicate the name of its dimension and its
+ * number of values (-1 for every value), followed by the values. A response is a status, followed on success by the
+ * number of testers and each tester's id, first name, last name, bug count and rank (a long), most bugs first, or on
+ * failure by an error message.
+ */
+class ShardProtocol {
+    private static final int MAGIC = 0x544D5351; //"TMSQ"
+    private static final int VERSION = 3;
+    private static final int OK = 0;
+    private static final int ERROR = 1;
+
+    static void writeHandshake(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * @param in Stream of a new connection
+     * @throws IOException Thrown when the connection does not open with this protocol
+     */
+    static void readHandshake(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a shard query connection");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Protocol version " + version + ", expected version " + VERSION);
+        }
+    }
+
+    static void writeShard(DataOutputStream out, int shard, int shards) throws IOException {
+        out.writeInt(shard);
+        out.writeInt(shards);
+    }
+
+    /**
+     * @param in Stream of a new connection, whose handshake has been written
+     * @return The shard the worker serves, followed by the number of shards
+     * @throws IOException Thrown when the stream cannot be read
+     */
+    static int[] readShard(DataInputStream in) throws IOException {
+        return new int[] {in.readInt(), in.readInt()};
+    }
+
+    static void writeQuery(DataOutputStream out, Query query) throws IOException {
+        out.writeInt(query.getLimit());
+        out.writeInt(query.getPredicates().size());
+        for (Predicate predicate : query.getPredicates()) {
+            out.writeUTF(predicate.getDimension().getName());
+            out.writeInt(predicate.isAll() ? -1 : predicate.getValues().size());
+            for (String value : predicate.getValues()) {
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    /**
+     * @param in Stream to read from
+     * @return The next query
+     * @throws IOException Thrown when the stream cannot be read
+     * @throws IllegalArgumentException Thrown when the query names a dimension that does not exist. The request is
+     * read to its end, so the connection can still be used
+     */
+    static Query readQuery(DataInputStream in) throws IOException {
+        int limit = in.readInt();
+        int count = in.readInt();
+        List<Predicate> predicates = new ArrayList<>(count);
+        String unknown = null;
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            int size = in.readInt();
+            List<String> values = size < 0 ? null : new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                values.add(in.readUTF());
+            }
+            Dimension dimension = Dimensions.forName(name);
+            if (dimension == null) {
+                unknown = name;
+            } else {
+                predicates.add(values == null ? Predicate.all(dimension) : new Predicate(dimension, values));
+            }
+        }
+        if (unknown != null) {
+            throw new IllegalArgumentException("Unknown dimension " + unknown);
+        }
+        return new Query(predicates, limit);
+    }
+
+    static void writeResult(DataOutputStream out, List<TesterResult> result) throws IOException {
+        out.writeInt(OK);
+        out.writeInt(result.size());
+        for (TesterResult tester : result) {
+            out.writeInt(tester.getId());
+            out.writeUTF(tester.getFirstName());
+            out.writeUTF(tester.getLastName());
+            out.writeInt(tester.getNumBugs());
+            out.writeLong(tester.getRank());
+        }
+    }
+
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeInt(ERROR);
+        out.writeUTF(message == null ? "" : message);
+    }
+
+    /**
+     * @param in Stream to read from
+     * @return The testers of the next response
+     * @throws IOException Thrown when the stream cannot be read
+     * @throws IllegalArgumentException Thrown when the response is an error, such as a query the worker rejected. The
+     * response is read to its end, so the connection can still be used
+     */
+    static List<TesterResult> readResult(DataInputStream in) throws IOException {
+        int status = in.readInt();
+        if (status == ERROR) {
+            throw new IllegalArgumentException(in.readUTF());
+        }
+        if (status != OK) {
+            throw new IOException("Unknown response status " + status);
+        }
+        int count = in.readInt();
+        List<TesterResult> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new TesterResult(in.readInt(), in.readUTF(), in.readUTF(), in.readInt(), in.readLong()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package testermatcher;
+
+import query.Query;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves queries on one shard of the data to a {@link ShardCoordinator}, over the binary protocol of
+ * {@link ShardProtocol}. The worker only listens on the loopback interface. Each connection is served on its own
+ * thread, and any number of connections may query the repository at once.
+ */
+public class ShardWorker {
+    private final TesterRepository repository;
+    //The shard this worker serves, and the number of shards, told to the coordinator on every connection
+    private final int shard;
+    private final int shards;
+    private final ServerSocket server;
+    private final ExecutorService connections = QueryServer.newThreadPerTaskExecutor();
+
+    /**
+     * Constructor for this class
+     * @param repository Repository holding this worker's shard
+     * @param shard The shard the repository holds, from 0
+     * @param shards The number of shards the data is split into
+     * @param port Port on which to listen, or 0 for any free port
+     * @throws IOException Thrown when the port cannot be bound
+     */
+    public ShardWorker(TesterRepository repository, int shard, int shards, int port) throws IOException {
+        this.repository = repository;
+        this.shard = shard;
+        this.shards = shards;
+        this.server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Starts accepting connections on a background thread, which keeps the program running until stop() is called
+     */
+    public void start() {
+        new Thread(this::accept, "shard-worker-" + getPort()).start();
+    }
+
+    /**
+     * Stops accepting connections, and closes the connections in progress
+     * @throws IOException Thrown when the server socket cannot be closed
+     */
+    public void stop() throws IOException {
+        server.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * @return The port the worker is listening on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Could not accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the coordinator closes it
+     * @param socket Connection to serve
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            ShardProtocol.readHandshake(in);
+            ShardProtocol.writeShard(out, shard, shards);
+            out.flush();
+            while (true) {
+                try {
+                    Query query = ShardProtocol.readQuery(in);
+                    ShardProtocol.writeResult(out, repository.execute(query));
+                } catch (EOFException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    ShardProtocol.writeError(out, e.getMessage());
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Shard connection failed: " + e.getMessage());
+        }
+    }
+}
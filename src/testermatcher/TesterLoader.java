@@ -0,0 +1,410 @@
+package testermatcher;
+
+import csv.CsvReader;
+import metrics.PhaseTimings;
+import store.PartitionedStore;
+import store.StoreSnapshot;
+import store.TesterStore;
+import store.TesterStoreBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+
+/**
+ * This class reads the four input files into a {@link TesterStore}. With more than one thread, testers.csv and
+ * devices.csv are read at the same time, and bugs.csv is split into ranges of lines that are parsed in parallel on a
+ * ForkJoinPool and then merged.
+ *
+ * If given a snapshot file, the loader reads the store from the snapshot instead whenever the four input files are
+ * unchanged since the snapshot was built from them, and otherwise rewrites the snapshot after parsing the files.
+ *
+ * The loader can build an aggregate store, which keeps only how many bugs each tester found on each device and not
+ * the ids of the bugs. The results of every query are the same, in a fraction of the memory. It can also keep the bug
+ * ids off the heap, in a direct buffer, or when reading a snapshot, in the mapped snapshot file. Finally, it can leave
+ * the bug counts in bugs.csv: loading then only notes where each device's rows are, and the store reads a device's
+ * rows when it is first searched for.
+ *
+ * The loader remembers how many bytes of each file the store holds, so that rows appended to the files afterwards
+ * can be picked up by a {@link DeltaTailer}. It stops at the last complete line of bugs.csv and tester_device.csv, so
+ * that a row still being appended is never read in part.
+ */
+public class TesterLoader {
+    //Number of ranges bugs.csv is split into per thread, so that threads that finish early can pick up more work
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Map<String, File> fileMap;
+    private final int threads;
+    private final File snapshot;
+    //False to keep only bug counts, not bug ids
+    private final boolean keepBugIds;
+    //True to keep bug ids off the heap
+    private final boolean offHeap;
+    //Number of bytes of each file that were loaded
+    private final Map<String, Long> loadedLengths = new ConcurrentHashMap<>();
+    //Time taken by each phase of the last load
+    private final PhaseTimings timings = new PhaseTimings();
+
+    /**
+     * Constructor for this class
+     * @param fileMap Mapping from user input options to the corresponding files that were entered
+     * @param threads Number of threads with which to read the files
+     * @param snapshot Snapshot file to read from or write to, or null to always parse the files
+     */
+    public TesterLoader(Map<String, File> fileMap, int threads, File snapshot) {
+        this(fileMap, threads, snapshot, true, false);
+    }
+
+    /**
+     * Constructor for this class
+     * @param fileMap Mapping from user input options to the corresponding files that were entered
+     * @param threads Number of threads with which to read the files
+     * @param snapshot Snapshot file to read from or write to, or null to always parse the files
+     * @param keepBugIds False to build an aggregate store, which keeps only bug counts and not bug ids
+     * @param offHeap True to keep bug ids off the heap
+     */
+    public TesterLoader(Map<String, File> fileMap, int threads, File snapshot, boolean keepBugIds, boolean offHeap) {
+        this.fileMap = fileMap;
+        this.threads = Math.max(threads, 1);
+        this.snapshot = snapshot;
+        this.keepBugIds = keepBugIds;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Reads the store from the snapshot if it is fresh and was built in the same mode, or from the input files
+     * otherwise
+     * @return A store holding the contents of the files
+     * @throws IOException Thrown when a given file does not exist or cannot be read, or the snapshot cannot be written
+     */
+    public TesterStore load() throws IOException {
+        //Taken before the files are read, so that any change made while they are read makes the snapshot stale
+        StoreSnapshot.Sources sources = StoreSnapshot.Sources.of(fileMap.values());
+        measureFiles();
+        if (snapshot != null && StoreSnapshot.isFresh(snapshot, fileMap.values())) {
+            try {
+                long start = System.nanoTime();
+                TesterStore store = StoreSnapshot.read(snapshot, offHeap);
+                timings.record("read snapshot", store.bugCount(), System.nanoTime() - start);
+                //A snapshot of an aggregate store cannot give back bug ids, and one with bug ids is needlessly large
+                if (store.keepsBugIds() == keepBugIds) {
+                    return store;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read snapshot, reading the csv files instead: " + e.getMessage());
+            }
+        }
+        TesterStore store = parse(new TesterStoreBuilder(keepBugIds, offHeap));
+        if (snapshot != null) {
+            long start = System.nanoTime();
+            StoreSnapshot.write(store, snapshot, sources);
+            timings.record("write snapshot", store.bugCount(), System.nanoTime() - start);
+        }
+        return store;
+    }
+
+    /**
+     * Reads only the testers of one shard from the input files, along with their devices and bugs, for a
+     * {@link ShardWorker}. The snapshot, if any, is neither read nor written, as it holds every tester
+     * @param shard Shard to read, from 0 up to shards
+     * @param shards Number of shards the testers are split into by id, as by {@link PartitionedStore}
+     * @return A store holding the shard's rows of the files
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    public TesterStore loadShard(int shard, int shards) throws IOException {
+        measureFiles();
+        return parse(new TesterStoreBuilder(keepBugIds, offHeap,
+                testerId -> PartitionedStore.partitionOf(testerId, shards) == shard));
+    }
+
+    /**
+     * Reads every tester, device and tester/device mapping, but only indexes bugs.csv by device: the bugs are counted
+     * towards their testers' totals, and the store reads the rows of a device when the device is first searched for.
+     * The store keeps no bug ids, and the snapshot, if any, is neither read nor written. The store keeps bugs.csv open,
+     * so a new file may be moved over it, but it must not be rewritten in place while the store is in use, though rows
+     * may still be appended to it
+     * @param memoryBudget Largest number of bytes of per-device bug counts the store keeps cached
+     * @return A store holding the contents of the files
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    public TesterStore loadLazily(long memoryBudget) throws IOException {
+        measureFiles();
+        TesterStoreBuilder builder = new TesterStoreBuilder(false, false);
+        FileChannel bugs = FileChannel.open(fileMap.get("-b").toPath(), StandardOpenOption.READ);
+        try {
+            //The file that was opened may already be a newer one than the one measured above
+            loadedLengths.put("-b", CsvReader.completeLinesEnd(bugs, 0, bugs.size()));
+            builder.readBugsLazily(fileMap.get("-b"), bugs, memoryBudget);
+            addTesters(builder);
+            addDevices(builder);
+            addTesterDevices(builder);
+            indexBugs(builder, bugs);
+            return build(builder);
+        } catch (IOException | RuntimeException e) {
+            bugs.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The time taken by each phase of loading, and the rows per second it processed
+     */
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * @param option One of -b, -t, -d or -m
+     * @return The number of bytes of that option's file held by the last store this loader loaded
+     */
+    public long getLoadedLength(String option) {
+        return loadedLengths.getOrDefault(option, 0L);
+    }
+
+    /**
+     * Notes how many bytes of each file to load: all of testers.csv and devices.csv, but only up to the last line
+     * break of bugs.csv and tester_device.csv, as their last line may still be being appended. A {@link DeltaTailer}
+     * picks it up from there once it is complete
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    private void measureFiles() throws IOException {
+        for (Map.Entry<String, File> entry : fileMap.entrySet()) {
+            File file = entry.getValue();
+            boolean appended = entry.getKey().equals("-b") || entry.getKey().equals("-m");
+            loadedLengths.put(entry.getKey(), appended ? CsvReader.completeLinesEnd(file, 0) : file.length());
+        }
+    }
+
+    /**
+     * Reads every input file
+     * @param builder Builder to which to add the rows
+     * @return A store holding the contents of the files
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    private TesterStore parse(TesterStoreBuilder builder) throws IOException {
+        if (threads == 1) {
+            addTesters(builder);
+            addDevices(builder);
+            addTesterDevices(builder);
+            addBugs(builder);
+            return build(builder);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            CompletableFuture<Void> testers = CompletableFuture.runAsync(unchecked(() -> addTesters(builder)), pool);
+            CompletableFuture<Void> devices = CompletableFuture.runAsync(unchecked(() -> addDevices(builder)), pool);
+            join(CompletableFuture.allOf(testers, devices));
+            addTesterDevices(builder);
+            addBugsInParallel(builder, pool);
+            return build(builder);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds every tester, along with the country the tester is based in.
+     * @param builder Builder to which to add the rows
+     * @throws IOException Thrown when given file does not exist or cannot be read
+     */
+    private void addTesters(TesterStoreBuilder builder) throws IOException {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (CsvReader testers = open("-t")) {
+            testers.next(); //advance past column line
+            while (testers.next()) {
+                builder.addTester(testers.intField(0), testers.stringField(1), testers.stringField(2),
+                        testers.stringField(3));
+                rows++;
+            }
+        }
+        timings.record("testers.csv", rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Adds every device
+     * @param builder Builder to which to add the rows
+     * @throws IOException Thrown when given file does not exist or cannot be read
+     */
+    private void addDevices(TesterStoreBuilder builder) throws IOException {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (CsvReader devices = open("-d")) {
+            devices.next(); //advance past column line
+            while (devices.next()) {
+                builder.addDevice(devices.intField(0), devices.stringField(1));
+                rows++;
+            }
+        }
+        timings.record("devices.csv", rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Adds every mapping from a tester to a device they test.
+     * @param builder Builder to which to add the rows
+     * @throws IOException Thrown when given file does not exist or cannot be read
+     */
+    private void addTesterDevices(TesterStoreBuilder builder) throws IOException {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (CsvReader testerDevices = open("-m")) {
+            testerDevices.next(); //advance past column line
+            while (testerDevices.next()) {
+                builder.addTesterDevice(testerDevices.intField(0), testerDevices.intField(1));
+                rows++;
+            }
+        }
+        timings.record("tester_device.csv", rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads bugs.csv and adds each bug to the tester who identified it, and to that tester's device. Every field of
+     * this file is an id, so no field is ever decoded into a String
+     * @param builder Builder to which to add the rows
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    private void addBugs(TesterStoreBuilder builder) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (CsvReader bugs = open("-b")) {
+            bugs.next(); //advance past column line
+            while (bugs.next()) {
+                builder.addBug(bugs.intField(0), bugs.intField(1), bugs.intField(2));
+                rows++;
+            }
+        }
+        timings.record("bugs.csv", rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads bugs.csv, noting where in the file the rows of each device are, and counting each bug towards the tester
+     * who identified it. Only the tester and device fields are parsed
+     * @param builder Builder to which to add the rows, which must read its bugs lazily
+     * @param channel Open channel of bugs.csv, which the store reads the rows of each device through
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    private void indexBugs(TesterStoreBuilder builder, FileChannel channel) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (CsvReader bugs = CsvReader.open(channel, 0, getLoadedLength("-b"))) {
+            bugs.next(); //advance past column line
+            while (bugs.next()) {
+                builder.indexBug(bugs.intField(1), bugs.intField(2), bugs.recordStart(), bugs.recordEnd());
+                rows++;
+            }
+        }
+        timings.record("bugs.csv (index)", rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Splits bugs.csv into ranges of lines, parses each range into its own chunk on the given pool, and then merges
+     * the chunks into the builder in file order
+     * @param builder Builder to which to add the rows
+     * @param pool Pool on which to parse the ranges
+     * @throws IOException Thrown when a given file does not exist or cannot be read
+     */
+    private void addBugsInParallel(TesterStoreBuilder builder, ForkJoinPool pool) throws IOException {
+        long started = System.nanoTime();
+        File file = fileMap.get("-b");
+        long[] offsets = CsvReader.split(file, getLoadedLength("-b"), threads * CHUNKS_PER_THREAD);
+        List<ForkJoinTask<TesterStoreBuilder.BugChunk>> tasks = new ArrayList<>();
+        for (int i = 0; i < offsets.length - 1; i++) {
+            long start = offsets[i];
+            long end = offsets[i + 1];
+            tasks.add(pool.submit(() -> {
+                TesterStoreBuilder.BugChunk chunk = builder.newBugChunk();
+                try (CsvReader bugs = CsvReader.open(file, start, end)) {
+                    if (start == 0) {
+                        bugs.next(); //advance past column line
+                    }
+                    while (bugs.next()) {
+                        chunk.addBug(bugs.intField(0), bugs.intField(1), bugs.intField(2));
+                    }
+                }
+                return chunk;
+            }));
+        }
+        long rows = 0;
+        for (ForkJoinTask<TesterStoreBuilder.BugChunk> task : tasks) {
+            TesterStoreBuilder.BugChunk chunk = join(task);
+            builder.addBugs(chunk);
+            rows += chunk.size();
+        }
+        timings.record("bugs.csv", rows, System.nanoTime() - started);
+    }
+
+    /**
+     * Lays out the rows added to a builder into a store, building its indexes
+     */
+    private TesterStore build(TesterStoreBuilder builder) {
+        long start = System.nanoTime();
+        TesterStore store = builder.build();
+        timings.record("build indexes", store.pairCount(), System.nanoTime() - start);
+        return store;
+    }
+
+    /**
+     * Opens a reader over the part of an option's file that was there when loading started
+     */
+    private CsvReader open(String option) throws IOException {
+        return CsvReader.open(fileMap.get(option), 0, getLoadedLength(option));
+    }
+
+    /**
+     * Waits for a task, rethrowing any IOException the task failed with
+     */
+    private static <T> T join(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading", e);
+        } catch (ExecutionException e) {
+            //Tasks wrap checked exceptions in CompletionException, UncheckedIOException or a plain RuntimeException
+            Throwable cause = e.getCause();
+            while ((cause instanceof CompletionException || cause instanceof UncheckedIOException
+                    || cause.getClass() == RuntimeException.class) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static Runnable unchecked(IOAction action) {
+        return () -> {
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * A piece of loading work that may fail with an IOException
+     */
+    private interface IOAction {
+        void run() throws IOException;
+    }
+}
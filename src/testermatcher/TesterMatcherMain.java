@@ -0,0 +1,453 @@
+package testermatcher;
+
+import models.TesterResult;
+import store.PartitionedStore;
+import store.StoreDelta;
+import store.TesterStore;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Main entry point for this program. Handles user input and displaying results
+ */
+public class TesterMatcherMain {
+    private static final String INPUT_ERROR_MSG = "Error, invalid input, please try again";
+    private static final List<String> FILE_OPTIONS = Arrays.asList("-b", "-t", "-d", "-m");
+    //A comma-separated list of non-empty values. Values may hold any printable character but a comma or a backslash,
+    //so that names such as "galaxy s-3" and patterns such as "iphone*" get through
+    private static Pattern inputRegex = Pattern.compile("^[^,\\\\\\p{Cntrl}]+(?:,[^,\\\\\\p{Cntrl}]+)*$");
+    //Maximum number of testers the REPL prints per query, or 0 for all of them. Set with \limit
+    private static int limit = 0;
+    //Number of testers at the top of each result the REPL leaves out, to page through results. Set with \offset
+    private static int offset = 0;
+    //Form in which the REPL prints results. Set with \format
+    private static ResultFormatter.Format format = ResultFormatter.Format.TABLE;
+
+    public static void main(String[] args) throws FileNotFoundException, IOException {
+        Map<String, String> options = getOptionMap(args);
+        if (options.containsKey("-r")) {
+            runCoordinator(options);
+            return;
+        }
+        Map<String, File> files = getFileMap(options);
+        int threads = Integer.parseInt(options.getOrDefault("-p", "1"));
+        File snapshot = options.containsKey("-s") ? new File(options.get("-s")) : null;
+        TesterLoader loader = new TesterLoader(files, threads, snapshot, !options.containsKey("-a"),
+                options.containsKey("-x"));
+        int partitions = Integer.parseInt(options.getOrDefault("-n", "1"));
+        if (options.containsKey("-w") && shardOption(options, partitions) < 0) {
+            System.out.println(partitions < 1 ? "Error, -n must be at least 1"
+                    : "Error, a worker needs -i, the shard to serve, from 0 up to " + (partitions - 1));
+            System.exit(1);
+        }
+        //Splitting reads the bug counts of every device, which would make a lazily read store an eager one
+        if (options.containsKey("-l") && !options.containsKey("-w") && partitions > 1) {
+            System.out.println("Error, -l cannot be used with -n above 1");
+            System.exit(1);
+        }
+        //A worker holds a single shard of the data, rather than all of it in partitions
+        DatasetReloader.StoreSource source = options.containsKey("-w")
+                ? l -> new PartitionedStore(load(l, options))
+                : l -> partition(l, load(l, options), partitions);
+        TesterRepository testerRepository = new TesterRepository(source.load(loader));
+        DeltaTailer tailer = null;
+        if (options.containsKey("-f")) {
+            tailer = new DeltaTailer(testerRepository, files.get("-b"), loader.getLoadedLength("-b"), files.get("-m"),
+                    loader.getLoadedLength("-m"));
+            tailer.start(Long.parseLong(options.get("-f")));
+        }
+        if (options.containsKey("-w")) {
+            int shard = shardOption(options, partitions);
+            ShardWorker worker = new ShardWorker(testerRepository, shard, partitions,
+                    Integer.parseInt(options.get("-w")));
+            worker.start();
+            watch(options, files, new DatasetReloader(testerRepository, source, loader, tailer, null));
+            System.out.println("Serving shard " + shard + " of " + partitions + " on port " + worker.getPort());
+            return;
+        }
+        int cacheSize = options.containsKey("-c") ? Integer.parseInt(options.get("-c"))
+                : QueryExecutor.DEFAULT_CACHE_SIZE;
+        QueryExecutor executor = new QueryExecutor(testerRepository, cacheSize);
+        DatasetReloader reloader = new DatasetReloader(testerRepository, source, loader, tailer, executor.getCache());
+        watch(options, files, reloader);
+        TesterMatcherStats stats = new TesterMatcherStats(loader, testerRepository, executor);
+        registerStats(stats);
+        runQueries(options, executor, testerRepository, reloader, stats);
+    }
+
+    /**
+     * Reloads the data whenever the input files change, checking them every number of milliseconds given with -u, if
+     * there is such an option. Rows appended to the files followed with -f are still applied without a reload
+     * @param options Mapping from command line options to their corresponding argument
+     * @param files Mapping from each of the -b, -t, -d and -m options to its file
+     * @param reloader Reloader with which to reload the data
+     */
+    private static void watch(Map<String, String> options, Map<String, File> files, DatasetReloader reloader) {
+        if (options.containsKey("-u")) {
+            Set<File> followed = options.containsKey("-f") ? Set.of(files.get("-b"), files.get("-m")) : Set.of();
+            reloader.watch(files.values(), followed, Long.parseLong(options.get("-u")));
+        }
+    }
+
+    /**
+     * Runs queries in the way the options ask for: the batch file given with -q, over HTTP on the port given with -h,
+     * or otherwise at the REPL
+     * @param options Mapping from command line options to their corresponding argument
+     * @param executor Executor with which to run queries
+     * @param testerRepository Repository the executor runs on, or null if it runs on remote shards
+     * @param reloader Reloader of the repository's data, or null if it runs on remote shards
+     * @param stats Statistics to show, or null if there are none
+     * @throws IOException Thrown when a file cannot be read or written, or the port cannot be bound
+     */
+    private static void runQueries(Map<String, String> options, QueryExecutor executor,
+                                   TesterRepository testerRepository, DatasetReloader reloader,
+                                   TesterMatcherStats stats) throws IOException {
+        if (options.containsKey("-q")) {
+            runBatch(options, executor);
+            return;
+        }
+        if (options.containsKey("-h")) {
+            QueryServer server = new QueryServer(executor, Integer.parseInt(options.get("-h")));
+            server.start();
+            System.out.println("Listening on port " + server.getPort());
+            return;
+        }
+        userInputLoop(executor, testerRepository, reloader, stats);
+    }
+
+    /**
+     * Runs queries on shards served by workers in other processes, given with -r as a comma-separated list of
+     * host:port addresses, one per shard. No data is loaded in this process, and results are not cached, as the
+     * workers' data may change at any time
+     * @param options Mapping from command line options to their corresponding argument
+     * @throws IOException Thrown when a file cannot be read or written, or the port cannot be bound
+     */
+    private static void runCoordinator(Map<String, String> options) throws IOException {
+        List<InetSocketAddress> shards = new ArrayList<>();
+        for (String address : options.get("-r").split(",")) {
+            int colon = address.lastIndexOf(':');
+            shards.add(new InetSocketAddress(address.substring(0, colon).strip(),
+                    Integer.parseInt(address.substring(colon + 1).strip())));
+        }
+        QueryExecutor executor = new QueryExecutor(new ShardCoordinator(shards), 0);
+        runQueries(options, executor, null, null, null);
+    }
+
+    /**
+     * Loads the store: only the shard given with -i if this is a worker, or else everything, reading bug counts lazily
+     * within the number of megabytes given with -l if there is one. With -z, the bug ids are then compressed
+     * @param loader Loader with which to load the store
+     * @param options Mapping from command line options to their corresponding argument
+     * @return The loaded store
+     * @throws IOException Thrown when a file cannot be read, or the snapshot cannot be written
+     */
+    private static TesterStore load(TesterLoader loader, Map<String, String> options) throws IOException {
+        TesterStore store;
+        if (options.containsKey("-w")) {
+            int shards = Integer.parseInt(options.getOrDefault("-n", "1"));
+            store = loader.loadShard(shardOption(options, shards), shards);
+        } else if (options.containsKey("-l")) {
+            store = loader.loadLazily(Long.parseLong(options.get("-l")) * 1024 * 1024);
+        } else {
+            store = loader.load();
+        }
+        if (options.containsKey("-z")) {
+            long start = System.nanoTime();
+            store = store.compressBugIds();
+            loader.getTimings().record("compress bug ids", store.bugCount(), System.nanoTime() - start);
+        }
+        return store;
+    }
+
+    /**
+     * Splits a loaded store into partitions by tester id, recording the time the split takes
+     * @param loader Loader the store was loaded with
+     * @param store The loaded store
+     * @param partitions Number of partitions
+     * @return The store, in the given number of partitions
+     */
+    private static PartitionedStore partition(TesterLoader loader, TesterStore store, int partitions) {
+        long start = System.nanoTime();
+        PartitionedStore partitioned = PartitionedStore.split(store, partitions);
+        if (partitions > 1) {
+            loader.getTimings().record("split into " + partitions + " partitions", store.testerCount(),
+                    System.nanoTime() - start);
+        }
+        return partitioned;
+    }
+
+    /**
+     * Exposes the program's statistics through JMX. Failing to do so is not fatal, as \stats still shows them
+     * @param stats Statistics to expose
+     */
+    private static void registerStats(TesterMatcherStats stats) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats,
+                    new ObjectName(TesterMatcherStats.OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Could not register statistics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the queries of the file given with -q, writing the results to the file given with -o, or to standard output
+     * if there is none. Queries run on as many threads as given with -p, or on one thread per processor if there is no
+     * -p or it is not above 0
+     * @param options Mapping from command line options to their corresponding argument
+     * @param executor Executor with which to run queries
+     * @throws IOException Thrown when a file cannot be read or written
+     */
+    private static void runBatch(Map<String, String> options, QueryExecutor executor) throws IOException {
+        int threads = options.containsKey("-p") ? Integer.parseInt(options.get("-p")) : 0;
+        BatchRunner runner = new BatchRunner(executor, threads);
+        File queries = new File(options.get("-q"));
+        long start = System.nanoTime();
+        int count;
+        if (options.containsKey("-o")) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(options.get("-o")), StandardCharsets.UTF_8)) {
+                count = runner.run(queries, out);
+            }
+        } else {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            count = runner.run(queries, out);
+        }
+        System.err.println("Ran " + count + " queries in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static void userInputLoop(QueryExecutor executor, TesterRepository testerRepository,
+                                      DatasetReloader reloader, TesterMatcherStats stats) throws IOException {
+        Scanner input = new Scanner(System.in);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        while (true) {
+            String countries = getField("country", input);
+            checkQuit(countries);
+            if (countries.startsWith("\\")) {
+                runCommand(countries, executor, testerRepository, reloader, stats);
+                continue;
+            }
+            countries = normalize(countries);
+            if (!isValidInput(countries)){
+                System.out.println(INPUT_ERROR_MSG);
+                continue;
+            }
+
+            String devices = normalize(getField("device", input));
+            checkQuit(devices);
+            if (!isValidInput(devices)){
+                System.out.println(INPUT_ERROR_MSG);
+                continue;
+            }
+            List<TesterResult> result;
+            try {
+                result = executor.executeQuery(Arrays.asList(countries.split(",")), Arrays.asList(devices.split(",")),
+                        pageEnd(offset, limit));
+            } catch (RuntimeException e) {
+                System.out.println("Error, " + e.getMessage());
+                continue;
+            }
+            out.write("Here are ther results of your query\n");
+            ResultFormatter.write(result, offset, format, out);
+            out.write("\n");
+            out.flush();
+        }
+    }
+
+    /**
+     * This method provides a template for prompting for a search term
+     * @param field The search dimension for which you want to prompt
+     * @param input Scanner for reading user input
+     * @return The user's input, stripped of whitespace
+     */
+    private static String getField(String field, Scanner input) {
+        System.out.print("Enter a " + field + " or a comma-separated list of each " + field + ", or \"all\" for every " + field);
+        System.out.println(" (enter to skip, \\q to quit)");
+        System.out.println(field + ": ");
+        return input.nextLine().strip();
+    }
+
+    /**
+     * Puts a search term into the form the repository expects
+     * @param input The user's input
+     * @return The input, lowercased, and with the spaces after commas removed
+     */
+    static String normalize(String input) {
+        return input.toLowerCase().replace(", ", ",");
+    }
+
+    /**
+     * Runs one of the backslash commands that may be entered in place of a country. Besides \q, the commands are
+     * "\append -b bugs.csv -m tester_device.csv", which applies the rows of the given delta files (either of which may
+     * be left out) to the repository, "\cache", which prints the hit rate of the result cache, "\limit N", which
+     * makes every following query print only the N testers with the most bugs ("\limit 0" prints all of them again),
+     * "\offset N", which leaves out the first N testers so that "\limit" and "\offset" together page through results,
+     * "\format table|csv|json", which sets the form in which results are printed, "\reload", which reads every input
+     * file again in the background and swaps the new data in once it is loaded, and "\stats", which prints load
+     * timings, query latencies and memory use
+     * @param line The user's input
+     * @param executor Executor whose cache to report on
+     * @param testerRepository Repository on which to run the command, or null if queries run on remote shards
+     * @param reloader Reloader of the repository's data, or null if queries run on remote shards
+     * @param stats Statistics to print, or null if queries run on remote shards
+     */
+    private static void runCommand(String line, QueryExecutor executor, TesterRepository testerRepository,
+                                   DatasetReloader reloader, TesterMatcherStats stats) {
+        String[] words = line.split("\\s+");
+        Map<String, String> arguments = getOptionMap(Arrays.copyOfRange(words, 1, words.length));
+        if (testerRepository == null && (words[0].equals("\\append") || words[0].equals("\\stats")
+                || words[0].equals("\\reload"))) {
+            System.out.println("Error, " + words[0] + " is not available when querying remote shards");
+        } else if (words[0].equals("\\append")) {
+            try {
+                File bugs = arguments.containsKey("-b") ? new File(arguments.get("-b")) : null;
+                File testerDevices = arguments.containsKey("-m") ? new File(arguments.get("-m")) : null;
+                StoreDelta delta = DeltaTailer.readDeltaFiles(bugs, testerDevices);
+                reloader.append(delta);
+                System.out.println("Appended " + (delta.bugCount() + delta.testerDeviceCount()) + " rows");
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error, could not append: " + e.getMessage());
+            }
+        } else if (words[0].equals("\\reload")) {
+            System.out.println("Reloading in the background, queries keep running on the current data");
+            reloader.reload().whenComplete(DatasetReloader::report);
+        } else if (words[0].equals("\\cache")) {
+            QueryCache cache = executor.getCache();
+            long lookups = cache.getHits() + cache.getMisses();
+            System.out.printf("%d of %d results cached, %d hits, %d misses, %.1f%% hit rate%n", cache.size(),
+                    cache.getCapacity(), cache.getHits(), cache.getMisses(),
+                    lookups == 0 ? 0.0 : 100.0 * cache.getHits() / lookups);
+        } else if (words[0].equals("\\stats")) {
+            stats.describe().forEach(System.out::println);
+        } else if (words[0].equals("\\limit")) {
+            int newLimit = parseCount(words);
+            if (newLimit < 0) {
+                System.out.println("Error, the limit must be a number, 0 or more");
+            } else {
+                limit = newLimit;
+                System.out.println(limit == 0 ? "Printing every tester" : "Printing the top " + limit + " testers");
+            }
+        } else if (words[0].equals("\\offset")) {
+            int newOffset = parseCount(words);
+            if (newOffset < 0) {
+                System.out.println("Error, the offset must be a number, 0 or more");
+            } else {
+                offset = newOffset;
+                System.out.println("Leaving out the top " + offset + " testers");
+            }
+        } else if (words[0].equals("\\format")) {
+            ResultFormatter.Format newFormat = ResultFormatter.Format.forName(words.length > 1 ? words[1] : "");
+            if (newFormat == null) {
+                System.out.println("Error, the format must be one of table, csv or json");
+            } else {
+                format = newFormat;
+                System.out.println("Printing results as " + format.name().toLowerCase());
+            }
+        } else {
+            System.out.println("Error, unknown command " + words[0]);
+        }
+    }
+
+    /**
+     * @param words A command followed by its argument
+     * @return The argument, if it is a number 0 or more, or -1 otherwise
+     */
+    private static int parseCount(String[] words) {
+        try {
+            return words.length > 1 ? Math.max(-1, Integer.parseInt(words[1])) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param offset Number of testers to leave out
+     * @param limit Number of testers to show after those, or 0 for all of them
+     * @return The number of testers a query needs to return to fill the page, or 0 for all of them
+     */
+    static int pageEnd(int offset, int limit) {
+        return limit == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+    }
+
+    /**
+     * Checks to see if user input is "\q" and exits the program if so
+     * @param input The user's input
+     */
+    private static void checkQuit(String input) {
+        if (input.equals("\\q")) {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Chekcs that the user input is a valid, comma-separated strng, or empty
+     * @param s User input to be valid
+     * @return True if valid, false otherwise
+     */
+    static boolean isValidInput(String s) {
+        return inputRegex.matcher(s).matches() || s.isEmpty();
+    }
+
+    /**
+     * Creates a mapping from input options to the values the user has associated with them. It does make a number of,
+     * possibly too many, assumptions about user input. An option that is not followed by a value is mapped to the
+     * empty string
+     * @param args Command line arguments
+     * @return Mapping from command line options to their corresponding argument
+     */
+    private static Map<String, String> getOptionMap(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (isOption(args[i])) {
+                boolean hasValue = i + 1 < args.length && !isOption(args[i + 1]);
+                options.put(args[i], hasValue ? args[++i] : "");
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @param options Mapping from command line options to their corresponding argument
+     * @param shards The number of shards the data is split into
+     * @return The shard given with -i, or -1 if there is none, or it is not one of the shards
+     */
+    private static int shardOption(Map<String, String> options, int shards) {
+        try {
+            int shard = Integer.parseInt(options.getOrDefault("-i", ""));
+            return shard >= 0 && shard < shards ? shard : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isOption(String arg) {
+        return arg.length() == 2 && arg.charAt(0) == '-';
+    }
+
+    /**
+     * Picks out the input files from the command line options
+     * @param options Mapping from command line options to their corresponding argument
+     * @return Mapping from each of the -b, -t, -d and -m options to the file the user has associated with it
+     */
+    private static Map<String, File> getFileMap(Map<String, String> options) {
+        Map<String, File> optionToFile = new HashMap<>();
+        for (String option : FILE_OPTIONS) {
+            if (options.containsKey(option)) {
+                optionToFile.put(option, new File(options.get(option)));
+            }
+        }
+        return optionToFile;
+    }
+}
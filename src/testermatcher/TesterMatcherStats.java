@@ -0,0 +1,129 @@
+package testermatcher;
+
+import metrics.LatencyHistogram;
+import store.PartitionedStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gathers what the program knows about its own performance: how long each phase of loading took, how long queries of
+ * each shape take, and how much memory the store takes up. The same figures are printed by the \stats command and
+ * exposed through JMX, under the name {@link #OBJECT_NAME}, for tools such as jconsole.
+ *
+ * Nothing is computed until asked for; recording is left to the loader and the query executor, which do it with
+ * lock-free counters.
+ */
+public class TesterMatcherStats implements TesterMatcherStatsMBean {
+    public static final String OBJECT_NAME = "testermatcher:type=Stats";
+
+    private final TesterLoader loader;
+    private final TesterRepository repository;
+    private final QueryExecutor executor;
+
+    /**
+     * Constructor for this class
+     * @param loader Loader that loaded the repository
+     * @param repository Repository being queried
+     * @param executor Executor running the queries
+     */
+    public TesterMatcherStats(TesterLoader loader, TesterRepository repository, QueryExecutor executor) {
+        this.loader = loader;
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    @Override
+    public String[] getLoadPhases() {
+        return loader.getTimings().describe().toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getQueryLatencies() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : executor.getLatencies().entrySet()) {
+            LatencyHistogram latency = entry.getValue();
+            lines.add(String.format("%s: %d queries, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    entry.getKey(), latency.getCount(), latency.getMean() / 1e6, latency.getPercentile(50) / 1e6,
+                    latency.getPercentile(99) / 1e6, latency.getMax() / 1e6));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public long getIndexBytes() {
+        return repository.getStore().indexSizeInBytes();
+    }
+
+    @Override
+    public long getDataBytes() {
+        return repository.getStore().dataSizeInBytes();
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return repository.getStore().offHeapSizeInBytes();
+    }
+
+    @Override
+    public long getLazyDeviceLoads() {
+        return repository.getStore().lazyDeviceLoads();
+    }
+
+    @Override
+    public int getTesterCount() {
+        return repository.getStore().testerCount();
+    }
+
+    @Override
+    public int getBugCount() {
+        return repository.getStore().bugCount();
+    }
+
+    @Override
+    public long getStoreVersion() {
+        return repository.getStore().version();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return executor.getCache().getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return executor.getCache().getMisses();
+    }
+
+    @Override
+    public void resetQueryLatencies() {
+        executor.getLatencies().values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * @return Every figure, one per line, as printed by the \stats command
+     */
+    public List<String> describe() {
+        PartitionedStore store = repository.getStore();
+        List<String> lines = new ArrayList<>();
+        lines.add("Loading:");
+        for (String line : getLoadPhases()) {
+            lines.add("  " + line);
+        }
+        lines.add("Queries:");
+        for (String line : getQueryLatencies()) {
+            lines.add("  " + line);
+        }
+        lines.add("Store:");
+        lines.add(String.format("  version %d, %d testers, %d bugs, %d partitions", store.version(),
+                store.testerCount(), store.bugCount(), store.partitionCount()));
+        lines.add(String.format("  about %.1f MB of indexes and %.1f MB of data on the heap, %.1f MB off the heap",
+                store.indexSizeInBytes() / 1e6, store.dataSizeInBytes() / 1e6, store.offHeapSizeInBytes() / 1e6));
+        if (store.partition(0).readsBugCountsLazily()) {
+            lines.add(String.format("  bug counts of a device read from bugs.csv %d times", store.lazyDeviceLoads()));
+        }
+        lines.add(String.format("  result cache: %d hits, %d misses", getCacheHits(), getCacheMisses()));
+        return lines;
+    }
+}
@@ -0,0 +1,42 @@
+package testermatcher;
+
+/**
+ * Management interface of {@link TesterMatcherStats}, as seen through JMX
+ */
+public interface TesterMatcherStatsMBean {
+    /**
+     * @return One line per phase of the last load, giving its duration and rows per second
+     */
+    String[] getLoadPhases();
+
+    /**
+     * @return One line per query shape, giving the number of queries and their mean, p50, p99 and max latency
+     */
+    String[] getQueryLatencies();
+
+    long getIndexBytes();
+
+    long getDataBytes();
+
+    long getOffHeapBytes();
+
+    /**
+     * @return The number of times the bug counts of a device were read from bugs.csv, when they are read lazily
+     */
+    long getLazyDeviceLoads();
+
+    int getTesterCount();
+
+    int getBugCount();
+
+    long getStoreVersion();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /**
+     * Forgets the latencies of every query run so far
+     */
+    void resetQueryLatencies();
+}
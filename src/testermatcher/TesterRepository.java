@@ -0,0 +1,149 @@
+package testermatcher;
+
+import models.TesterResult;
+import query.Dimension;
+import query.Dimensions;
+import query.Predicate;
+import query.Query;
+import query.QueryPlanner;
+import store.PartitionedStore;
+import store.StoreDelta;
+import store.TesterStore;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class handles the storage of testers and provides a few means to access them based on certain search
+ * criteria. All results are returned as a list of TesterResult objects, one per tester, sorted on the number of bugs
+ * that tester has identified.
+ *
+ * New rows can be appended while queries are running. Each query reads the current version of the store once, and
+ * works on that version only; appending builds a new version and swaps it in, so queries never wait on a lock and
+ * never see half of a delta. Reloading the data swaps in a whole new store in the same way.
+ *
+ * The store may be split into partitions by tester id. A query then runs on every partition at once, on a
+ * ForkJoinPool, and the top testers of each partition are merged into the final result, so that one large query is
+ * spread over every core.
+ */
+public class TesterRepository implements QueryBackend<PartitionedStore> {
+    //Dictionary-encoded storage of every tester, device and bug. Replaced, never modified, by append
+    private volatile PartitionedStore store;
+    //Pool on which the partitions of a query are searched
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Constructor for this class
+     * @param store Store holding the testers, devices and bugs to search
+     */
+    public TesterRepository(TesterStore store) {
+        this(new PartitionedStore(store));
+    }
+
+    /**
+     * Constructor for this class
+     * @param store Store holding the testers, devices and bugs to search, split into partitions
+     */
+    public TesterRepository(PartitionedStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Applies new rows of bugs.csv and tester_device.csv. Queries that are already running finish on the version of
+     * the store they started with
+     * @param delta Rows to apply
+     */
+    public synchronized void append(StoreDelta delta) {
+        if (!delta.isEmpty()) {
+            store = store.apply(delta);
+        }
+    }
+
+    /**
+     * Replaces all of the data with a new store, such as a fresh load of the files. Queries that are already running
+     * finish on the old store, which is released once the last of them is done
+     * @param store Store to search from now on
+     */
+    public synchronized void replace(PartitionedStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return The current version of the store
+     */
+    public PartitionedStore getStore() {
+        return store;
+    }
+
+    @Override
+    public PartitionedStore getVersion() {
+        return store;
+    }
+
+    /**
+     * Runs a query against the current version of the store
+     * @param query Query to run
+     * @return A list of testers matching the query, sorted by the number of bugs identified and cut off at the
+     * query's limit
+     */
+    public List<TesterResult> execute(Query query) {
+        return execute(store, query);
+    }
+
+    /**
+     * Runs a query against a given version of the store
+     * @param store Version of the store to search, as returned by getStore()
+     * @param query Query to run
+     * @return A list of testers matching the query, sorted by the number of bugs identified and cut off at the
+     * query's limit
+     */
+    @Override
+    public List<TesterResult> execute(PartitionedStore store, Query query) {
+        if (store.partitionCount() == 1) {
+            return QueryPlanner.execute(store.partition(0), query);
+        }
+        //Each partition returns at most the query's limit, which is all the merge needs from it
+        List<ForkJoinTask<List<TesterResult>>> tasks = new ArrayList<>();
+        for (int i = 1; i < store.partitionCount(); i++) {
+            TesterStore partition = store.partition(i);
+            tasks.add(pool.submit(() -> QueryPlanner.execute(partition, query)));
+        }
+        List<List<TesterResult>> results = new ArrayList<>();
+        results.add(QueryPlanner.execute(store.partition(0), query));
+        for (ForkJoinTask<List<TesterResult>> task : tasks) {
+            results.add(task.join());
+        }
+        return QueryPlanner.merge(results, query.getLimit());
+    }
+
+    /**
+     * Finds a list of testers either by a list of countries, or devices, but not both
+     * @param params List of countries or devices by which to search for tester
+     * @param country If true then the input list "params" is a list of countries, list of devices otherwise
+     * @return A list of testers matching the given search criteria
+     */
+    public List<TesterResult> findByCountryOrDevice(List<String> params, boolean country) {
+        Dimension dimension = country ? Dimensions.COUNTRY : Dimensions.DEVICE;
+        return execute(new Query(Collections.singletonList(new Predicate(dimension, params))));
+    }
+
+    /**
+     * Finds all testers in this repository
+     * @return A list of all testers in this repository, sorted by the number of bugs identified
+     */
+    public List<TesterResult> findAll() {
+        return execute(new Query(Collections.emptyList()));
+    }
+
+    /**
+     * Finds testers in this repository by both country and device
+     * @param devices List of devices by which to search
+     * @param countries List of countries by which to search
+     * @return List of testers matching both the devices and countries search criteria
+     */
+    public List<TesterResult> findByCountryAndDevice(List<String> devices, List<String> countries) {
+        return execute(new Query(Arrays.asList(new Predicate(Dimensions.COUNTRY, countries),
+                new Predicate(Dimensions.DEVICE, devices))));
+    }
+}